@@ -6,6 +6,7 @@ package org.jboss.pnc.reqour.adjust;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Optional;
 
 import jakarta.inject.Inject;
 
@@ -27,8 +28,12 @@ import org.jboss.pnc.reqour.adjust.model.CloningResult;
 import org.jboss.pnc.reqour.adjust.provider.AdjustProvider;
 import org.jboss.pnc.reqour.adjust.provider.AdjustProviderPicker;
 import org.jboss.pnc.reqour.adjust.service.AdjustmentPusher;
+import org.jboss.pnc.reqour.adjust.service.ManipulatorWarmUp;
 import org.jboss.pnc.reqour.adjust.service.RepositoryFetcher;
 import org.jboss.pnc.reqour.adjust.utils.CommonUtils;
+import org.jboss.pnc.reqour.adjust.utils.StageGraph;
+import org.jboss.pnc.reqour.common.GitCommands;
+import org.jboss.pnc.reqour.common.WorkdirScope;
 import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.common.exceptions.GitHubApiException;
 import org.jboss.pnc.reqour.common.exceptions.GitLabApiRuntimeException;
@@ -78,6 +83,12 @@ public class App implements Runnable {
     @Inject
     AdjustmentPusher adjustmentPusher;
 
+    @Inject
+    ManipulatorWarmUp manipulatorWarmUp;
+
+    @Inject
+    GitCommands gitCommands;
+
     @Inject
     BifrostLogUploaderWrapper bifrostLogUploader;
 
@@ -103,25 +114,51 @@ public class App implements Runnable {
                 heartbeatScheduler.subscribeRequest(adjustRequest.getTaskId(), adjustRequest.getHeartbeatConfig());
             }
 
-            final CloningResult cloningResult;
-            try (AutoCloseable _c = ProcessStageUtils.startCloseableStage(AdjustProcessStage.SCM_CLONE.name())) {
-                cloningResult = repositoryFetcher.cloneRepository(adjustRequest, workdir);
-            }
-
-            try (AutoCloseable _c = ProcessStageUtils.startCloseableStage(AdjustProcessStage.ALIGNMENT_ADJUST.name())) {
-                AdjustProvider adjustProvider = adjustProviderPicker.pickAdjustProvider(adjustRequest);
-                ManipulatorResult manipulatorResult = adjustProvider.adjust(adjustRequest);
-                AdjustmentPushResult adjustmentPushResult = adjustmentPusher
-                        .pushAlignedChanges(
+            try (WorkdirScope _w = gitCommands.openWorkdirScope(workdir); StageGraph stages = new StageGraph()) {
+                final CloningResult cloningResult;
+                try (AutoCloseable _c = ProcessStageUtils.startCloseableStage(AdjustProcessStage.SCM_CLONE.name())) {
+                    // stages independent of the clone run concurrently with it, failures are reported in this order
+                    StageGraph.Stage<Void> tagProtection = stages.add("tag protection check", () -> {
+                        repositoryFetcher.checkTagProtection(adjustRequest);
+                        return null;
+                    });
+                    StageGraph.Stage<CloningResult> clone = stages
+                            .add("clone", () -> repositoryFetcher.cloneRepository(adjustRequest, workdir));
+                    // only the read-only part of the clone overlaps with the check, the push into the downstream waits
+                    StageGraph.Stage<Void> syncPush = stages.add("sync push", () -> {
+                        repositoryFetcher.pushSyncedRef(adjustRequest, clone.getResult(), workdir);
+                        return null;
+                    }, tagProtection, clone);
+                    StageGraph.Stage<Optional<Path>> javaResolution = stages
+                            .addBestEffort("Java resolution", () -> manipulatorWarmUp.resolveJava(adjustRequest));
+                    stages.addBestEffort("manipulator warm-up", () -> {
+                        manipulatorWarmUp.warmUp(
                                 adjustRequest,
-                                manipulatorResult,
-                                adjustProvider.failOnNoAlignmentChanges());
-                combineResultsOfStages(
-                        adjustRequest,
-                        cloningResult,
-                        adjustmentPushResult,
-                        adjustResponseBuilder,
-                        manipulatorResult);
+                                Optional.ofNullable(javaResolution.getResult()).flatMap(java -> java));
+                        return null;
+                    }, javaResolution);
+
+                    stages.await(tagProtection);
+                    cloningResult = stages.await(clone);
+                    stages.await(syncPush);
+                }
+
+                try (AutoCloseable _c = ProcessStageUtils
+                        .startCloseableStage(AdjustProcessStage.ALIGNMENT_ADJUST.name())) {
+                    AdjustProvider adjustProvider = adjustProviderPicker.pickAdjustProvider(adjustRequest);
+                    ManipulatorResult manipulatorResult = adjustProvider.adjust(adjustRequest);
+                    AdjustmentPushResult adjustmentPushResult = adjustmentPusher
+                            .pushAlignedChanges(
+                                    adjustRequest,
+                                    manipulatorResult,
+                                    adjustProvider.failOnNoAlignmentChanges());
+                    combineResultsOfStages(
+                            adjustRequest,
+                            cloningResult,
+                            adjustmentPushResult,
+                            adjustResponseBuilder,
+                            manipulatorResult);
+                }
             }
             userLogger.info("Adjust request was successful: {}", adjustRequest.getTaskId());
         } catch (AdjusterException | GitException | GitLabApiRuntimeException | GitHubApiException e) {
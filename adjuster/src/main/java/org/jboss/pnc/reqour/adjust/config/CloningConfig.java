@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.adjust.config;
+
+import java.util.Optional;
+
+import io.smallrye.config.WithDefault;
+
+/**
+ * Configuration of how the repository is cloned into the working directory of the alignment.
+ */
+public interface CloningConfig {
+
+    /**
+     * Object filter (e.g. {@code blob:none}, or {@code tree:0}), in case the repository is cloned partially. The
+     * filtered objects are fetched on demand, i.e. once they are checked out, or pushed. Hence the filter is not used
+     * when the upstream repository is synced, since the whole history of the synced ref is pushed then.
+     */
+    Optional<String> filter();
+
+    /**
+     * Whether only the directory of the aligned project (given by its location in the alignment parameters, e.g.
+     * {@code --file=h2/pom.xml}) is checked out, together with the files of all its parent directories. In case the
+     * repository has submodules, it is checked out fully.
+     */
+    @WithDefault("false")
+    boolean sparseCheckout();
+
+    SubmodulesConfig submodules();
+
+    /**
+     * Configuration of how the submodules are cloned, before the repository is transformed into fat repository. They
+     * are cloned partially by {@link #filter()} too.
+     */
+    interface SubmodulesConfig {
+
+        /**
+         * Number of submodules cloned in parallel.
+         */
+        @WithDefault("8")
+        int jobs();
+
+        /**
+         * Whether only the recorded commits of the submodules are fetched, without their history. The history of the
+         * submodules is not part of the fat repository anyway, but the git servers have to allow fetching of the
+         * commits, which are not tips of any ref.
+         */
+        @WithDefault("false")
+        boolean shallow();
+    }
+}
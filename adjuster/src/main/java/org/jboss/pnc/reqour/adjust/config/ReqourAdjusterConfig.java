@@ -23,4 +23,8 @@ public interface ReqourAdjusterConfig {
     String serializedMDC();
 
     LogConfig log();
+
+    TreeIndexConfig treeIndex();
+
+    CloningConfig cloning();
 }
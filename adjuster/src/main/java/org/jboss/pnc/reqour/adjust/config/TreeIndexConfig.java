@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.adjust.config;
+
+import org.jboss.pnc.reqour.enums.TagFetchMode;
+
+import io.smallrye.config.WithDefault;
+
+/**
+ * Configuration of the index of alignment tags by the tree SHA of the tagged commit, which is kept in the downstream
+ * repository.
+ */
+public interface TreeIndexConfig {
+
+    /**
+     * Whether the existing alignment tag is looked up in the index (and the index is maintained).
+     */
+    @WithDefault("true")
+    boolean enabled();
+
+    /**
+     * Which downstream tags are fetched and scanned, in case the tree is not in the index (e.g. the tag was created
+     * before the index was introduced).<br/>
+     * Only {@code all} finds the tags not named after the execution root version (e.g. an upstream release tag of the
+     * tree, which the alignment did not change), hence {@code targeted} and {@code none} are opt-in. Once the index
+     * covers the downstream repositories, this can be set to {@code none}.
+     */
+    @WithDefault("all")
+    TagFetchMode tagFetch();
+}
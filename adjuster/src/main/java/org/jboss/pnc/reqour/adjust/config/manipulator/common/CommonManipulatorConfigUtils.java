@@ -97,6 +97,43 @@ public class CommonManipulatorConfigUtils {
                 .build();
     }
 
+    /**
+     * Get the directory of the aligned project (relative to the root of the repository) from the location in the
+     * user-specified alignment parameters of the {@link AdjustRequest}. Empty in case no location is specified, or in
+     * case the project is in the root directory.
+     */
+    public static Optional<Path> getProjectDirectory(AdjustRequest request) {
+        UserSpecifiedAlignmentParameters userSpecifiedAlignmentParameters = switch (request.getBuildType()) {
+            case GRADLE -> parseUserSpecifiedAlignmentParameters(request, "t", "target");
+            default -> parseUserSpecifiedAlignmentParameters(request);
+        };
+        return userSpecifiedAlignmentParameters.getLocation()
+                .map(Path::normalize)
+                // location of maven builds is either the pom file, or the directory with it
+                .flatMap(
+                        location -> switch (request.getBuildType()) {
+                            case MVN, MVN_RPM -> isPomFile(location) ? Optional.ofNullable(location.getParent())
+                                    : Optional.of(location);
+                            default -> Optional.of(location);
+                        })
+                .filter(directory -> !directory.isAbsolute() && !directory.startsWith("..")
+                        && !directory.toString().isEmpty());
+    }
+
+    /**
+     * Whether the maven location ({@code -f}) is the pom file rather than a directory. The repository is not cloned yet
+     * once the location is needed, hence it is decided by the name: pom files are expected to end with {@code .xml}, or
+     * to be the polyglot ones (e.g. {@code pom.yaml}).
+     */
+    private static boolean isPomFile(Path location) {
+        Path fileName = location.getFileName();
+        if (fileName == null) {
+            return false;
+        }
+        String name = fileName.toString();
+        return name.endsWith(".xml") || name.startsWith("pom.");
+    }
+
     static List<String> parseUserSpecifiedAlignmentParametersWithoutLocation(
             String userSpecifiedAlignmentParametersWithoutLocation) {
         if (userSpecifiedAlignmentParametersWithoutLocation.isEmpty()) {
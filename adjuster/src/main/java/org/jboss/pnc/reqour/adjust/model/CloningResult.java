@@ -11,6 +11,12 @@ package org.jboss.pnc.reqour.adjust.model;
  * @param upstreamCommit ID of the upstream commit over which we wish to do the alignment
  * @param isRefRevisionInternal boolean flag whether the {@link org.jboss.pnc.api.reqour.dto.AdjustRequest#ref} is
  *        present in the internal SCM
+ * @param isSyncPushPending boolean flag whether the ref was cloned from the upstream, and is yet to be pushed into the
+ *        internal SCM
  */
-public record CloningResult(String upstreamCommit, boolean isRefRevisionInternal) {
+public record CloningResult(String upstreamCommit, boolean isRefRevisionInternal, boolean isSyncPushPending) {
+
+    public CloningResult(String upstreamCommit, boolean isRefRevisionInternal) {
+        this(upstreamCommit, isRefRevisionInternal, false);
+    }
 }
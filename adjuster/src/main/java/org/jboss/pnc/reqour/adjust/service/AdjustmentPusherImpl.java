@@ -8,8 +8,10 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -17,13 +19,13 @@ import jakarta.inject.Inject;
 import org.jboss.pnc.api.enums.BuildType;
 import org.jboss.pnc.api.reqour.dto.AdjustRequest;
 import org.jboss.pnc.api.reqour.dto.ManipulatorResult;
+import org.jboss.pnc.reqour.adjust.config.ReqourAdjusterConfig;
 import org.jboss.pnc.reqour.adjust.model.AdjustmentPushResult;
 import org.jboss.pnc.reqour.adjust.utils.CommonUtils;
 import org.jboss.pnc.reqour.common.GitCommands;
 import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
 import org.jboss.pnc.reqour.common.utils.GitUtils;
-import org.jboss.pnc.reqour.common.utils.IOUtils;
 import org.jboss.pnc.reqour.model.ProcessContext;
 import org.jboss.pnc.reqour.runtime.UserLogger;
 import org.slf4j.Logger;
@@ -43,10 +45,21 @@ public class AdjustmentPusherImpl implements AdjustmentPusher {
     @Inject
     GitCommands gitCommands;
 
+    @Inject
+    TreeTagIndex treeTagIndex;
+
+    @Inject
+    ReqourAdjusterConfig config;
+
     @Inject
     @UserLogger
     Logger userLogger;
 
+    /**
+     * Characters, which have no special meaning neither in refspecs nor in the patterns of {@code git log --tags}.
+     */
+    private static final Pattern TAG_NAME_PREFIX = Pattern.compile("[\\w.+-]+");
+
     private final Path workdir = CommonUtils.getAdjustDir();
 
     @Override
@@ -56,7 +69,8 @@ public class AdjustmentPusherImpl implements AdjustmentPusher {
             boolean failOnNoAlignmentChanges) {
         userLogger.info("Pushing aligned changes");
         prepareSearchingBranch(workdir);
-        String tagName = findTag(workdir);
+        String treeSha = getCurrentTreeSha(workdir);
+        String tagName = findTag(workdir, treeSha, manipulatorResult.getVersioningState().getExecutionRootVersion());
         if (tagName == null) {
             log.debug("No existing commit/tag with changes to commit is present. Creating new commit/tag");
             tagName = createTag(
@@ -67,9 +81,15 @@ public class AdjustmentPusherImpl implements AdjustmentPusher {
         }
         userLogger.info("Tag name is '{}'", tagName);
 
-        pushTag(workdir, tagName);
         String taggedCommitId = getCommitOfTag(workdir, tagName);
-        createBranchForTaggedCommit(workdir, tagName, taggedCommitId);
+        // the tag is indexed by the tree of the index, which is the tree of the tagged commit too
+        Optional<String> indexRefspec = config.treeIndex().enabled()
+                ? treeTagIndex.addTag(
+                        treeSha,
+                        tagName,
+                        ProcessContext.withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn))
+                : Optional.empty();
+        pushTagWithBranch(workdir, tagName, taggedCommitId, indexRefspec);
 
         return new AdjustmentPushResult(taggedCommitId, tagName);
     }
@@ -82,31 +102,92 @@ public class AdjustmentPusherImpl implements AdjustmentPusher {
         gitCommands.addAll(processContextBuilder);
     }
 
-    private String findTag(Path workdir) {
+    private String getCurrentTreeSha(Path workdir) {
+        String currentTreeSha = gitCommands.writeTree(
+                ProcessContext.withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn));
+        log.debug("Current tree SHA is: {}", currentTreeSha);
+        return currentTreeSha;
+    }
+
+    private String findTag(Path workdir, String treeSha, String alignmentRootVersion) {
+        if (config.treeIndex().enabled()) {
+            Optional<String> indexedTag = treeTagIndex.findTag(
+                    GitUtils.DEFAULT_REMOTE_NAME,
+                    treeSha,
+                    ProcessContext.withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn));
+            if (indexedTag.isPresent()) {
+                return indexedTag.get();
+            }
+        }
+
+        return switch (config.treeIndex().tagFetch()) {
+            case ALL -> findTagByTreeSha(workdir, treeSha);
+            case TARGETED -> findCandidateTagByTreeSha(workdir, treeSha, alignmentRootVersion);
+            case NONE -> {
+                log.debug("Tree {} is not indexed and scanning of tags is disabled", treeSha);
+                yield null;
+            }
+        };
+    }
+
+    /**
+     * Fetch only the downstream tags the alignment could have given to the tree before, i.e. the ones prefixed by the
+     * execution root version (see {@link #computeTagName(ProcessContext.Builder, String, String)}), and scan them. The
+     * refspec has a single prefix, which the server filters the advertised tags by.
+     */
+    private String findCandidateTagByTreeSha(Path workdir, String treeSha, String alignmentRootVersion) {
+        String prefix = alignmentRootVersion != null ? alignmentRootVersion : "reqour-";
         ProcessContext.Builder processContextBuilder = ProcessContext
                 .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
+        // keep the history of a shallow clone (see RepositoryFetcher) truncated, as the fetch of all tags does
+        boolean shallow = gitCommands.isShallowRepository(processContextBuilder);
+        if (!TAG_NAME_PREFIX.matcher(prefix).matches()) {
+            log.debug("Version '{}' cannot be used as a pattern of tag names, scanning all the tags", prefix);
+            gitCommands.fetchTags(GitUtils.DEFAULT_REMOTE_NAME, shallow, processContextBuilder);
+            return findTagByTreeSha(workdir, treeSha);
+        }
 
-        String currentTreeSha = gitCommands.writeTree(processContextBuilder);
-        log.debug("Current tree SHA is: {}", currentTreeSha);
-        return findTagByTreeSha(workdir, currentTreeSha);
+        String candidates = "refs/tags/" + prefix + "*";
+        gitCommands.fetchRef(
+                GitUtils.DEFAULT_REMOTE_NAME,
+                "+" + candidates + ":" + candidates,
+                shallow,
+                false,
+                processContextBuilder);
+        return findTagByTreeSha(workdir, treeSha, prefix + "*");
     }
 
     /**
      * Try to find the tag corresponding to the provided tree SHA
      */
     String findTagByTreeSha(Path workdir, String treeSha) {
+        return scanTagsByTreeSha(workdir, treeSha, "--tags");
+    }
+
+    /**
+     * Try to find the tag corresponding to the provided tree SHA among the tags matching the (glob) pattern
+     */
+    String findTagByTreeSha(Path workdir, String treeSha, String tagPattern) {
+        return scanTagsByTreeSha(workdir, treeSha, "--tags=" + tagPattern);
+    }
+
+    private String scanTagsByTreeSha(Path workdir, String treeSha, String tagsOption) {
         ProcessContext.Builder processContextBuilder = ProcessContext
                 .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
-        List<String> tags = IOUtils.splitByNewLine(
-                processExecutor.stdout(
-                        processContextBuilder.command(
-                                List.of("git", "--no-pager", "log", "--pretty=%T::%d", "--tags", "--no-walk"))));
-
-        Optional<String> treeReferences = tags.stream()
-                .filter(entry -> entry.startsWith(treeSha))
-                .findFirst()
-                .map(entry -> entry.split("::")[1].strip());
-        if (treeReferences.isEmpty()) {
+        // there is a line per every tagged commit, hence stop reading (and listing) at the first one with the tree
+        AtomicReference<String> treeReferences = new AtomicReference<>();
+        processExecutor.visitStdout(
+                processContextBuilder
+                        .command(List.of("git", "--no-pager", "log", "--pretty=%T::%d", tagsOption, "--no-walk"))
+                        .build(),
+                entry -> {
+                    if (entry.startsWith(treeSha)) {
+                        treeReferences.set(entry.split("::")[1].strip());
+                        return false;
+                    }
+                    return true;
+                });
+        if (treeReferences.get() == null) {
             return null;
         }
 
@@ -122,10 +203,34 @@ public class AdjustmentPusherImpl implements AdjustmentPusher {
         return null;
     }
 
-    private void pushTag(Path workdir, String tagName) {
+    /**
+     * Push the tag together with a branch pointing to the tagged commit (and the entry of the tree index, if any) by a
+     * single atomic push. The branch is created at the remote directly from the commit, and in case the tag or the
+     * branch already exists at the remote (pointing to the same object), the push succeeds without updating it.<br/>
+     * The index is an optimization only, hence in case the push fails with the entry (e.g. the remote refuses refs
+     * outside of branches and tags), the tag and the branch are pushed once again without it.
+     */
+    private void pushTagWithBranch(Path workdir, String tagName, String commitId, Optional<String> indexRefspec) {
         ProcessContext.Builder processContextBuilder = ProcessContext
                 .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
-        gitCommands.pushTags(GitUtils.DEFAULT_REMOTE_NAME, List.of(tagName), processContextBuilder);
+        String tagRef = "refs/tags/" + tagName;
+        String branchName = "branch-reqour-" + tagName + "-" + commitId;
+        List<String> refspecs = List.of(tagRef + ":" + tagRef, commitId + ":refs/heads/" + branchName);
+
+        userLogger.debug("Pushing tag '{}' together with branch '{}'", tagName, branchName);
+        if (indexRefspec.isPresent()) {
+            try {
+                gitCommands.pushAtomically(
+                        GitUtils.DEFAULT_REMOTE_NAME,
+                        Stream.concat(refspecs.stream(), indexRefspec.stream()).toList(),
+                        processContextBuilder);
+                return;
+            } catch (GitException e) {
+                userLogger.warn("Cannot push tag '{}' together with its tree index entry, pushing it without", tagName);
+                log.debug("Push of the tree index entry failed", e);
+            }
+        }
+        gitCommands.pushAtomically(GitUtils.DEFAULT_REMOTE_NAME, refspecs, processContextBuilder);
     }
 
     private String createTag(
@@ -171,7 +276,9 @@ public class AdjustmentPusherImpl implements AdjustmentPusher {
             String alignmentRootVersion,
             String commitId) {
         String tagName = (alignmentRootVersion != null) ? alignmentRootVersion : String.format("reqour-%s", commitId);
-        if (gitCommands.doesTagExistLocally(tagName, processContextBuilder)) {
+        // downstream tags are not necessarily fetched (see TreeIndexConfig#tagFetch)
+        if (gitCommands.doesTagExistLocally(tagName, processContextBuilder)
+                || gitCommands.doesTagExistAtRemote(GitUtils.DEFAULT_REMOTE_NAME, tagName, processContextBuilder)) {
             return adjustTagName(tagName, commitId);
         }
         return tagName;
@@ -209,24 +316,6 @@ public class AdjustmentPusherImpl implements AdjustmentPusher {
         return String.format("%s-%s", tagName, commitId.substring(0, 8));
     }
 
-    private void createBranchForTaggedCommit(Path workdir, String tagName, String commitId) {
-        ProcessContext.Builder processContextBuilder = ProcessContext
-                .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
-        String branchName = "branch-reqour-" + tagName + "-" + commitId;
-
-        boolean doesBranchAlreadyExist = gitCommands.doesBranchExistAtRemote(branchName, processContextBuilder);
-        if (doesBranchAlreadyExist) {
-            userLogger.debug("Branch '{}' already exists, skipping the creation", branchName);
-            // In case the branch already exists, nothing to do (we're assuming that this means the commit is already in
-            // the branch)
-            return;
-        }
-
-        userLogger.debug("Creating branch '{}'", branchName);
-        gitCommands.createBranch(branchName, processContextBuilder);
-        gitCommands.push(branchName, false, processContextBuilder);
-    }
-
     private String getTagMessage(String originalReference, BuildType adjustType) {
         return String.format(
                 "Tag automatically generated from Reqour\n" + "Original Reference: %s\n" + "Adjust Type: %s",
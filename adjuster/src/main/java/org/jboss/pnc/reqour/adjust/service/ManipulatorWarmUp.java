@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.adjust.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.pnc.api.reqour.dto.AdjustRequest;
+import org.jboss.pnc.reqour.adjust.config.AlignmentConfig;
+import org.jboss.pnc.reqour.adjust.config.ReqourAdjusterConfig;
+import org.jboss.pnc.reqour.adjust.config.manipulator.common.CommonManipulatorConfigUtils;
+import org.jboss.pnc.reqour.adjust.model.UserSpecifiedAlignmentParameters;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.model.ProcessContext;
+import org.slf4j.helpers.NOPLogger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Warm-up of the manipulator, which runs while the repository is being cloned. It resolves the Java the manipulator
+ * runs with, and reads the Java (by starting it), the manipulator and its settings into the page cache, so that the
+ * manipulator starts faster once the repository is cloned.<br/>
+ * Nothing of this is required, the manipulator resolves everything on its own again (and fails the same way when
+ * something is wrong).
+ */
+@ApplicationScoped
+@Slf4j
+public class ManipulatorWarmUp {
+
+    @Inject
+    ReqourAdjusterConfig config;
+
+    @Inject
+    ProcessExecutor processExecutor;
+
+    /**
+     * Resolve the Java the manipulator of the given request runs with.
+     *
+     * @return location of the Java, or empty in case the manipulator does not run on the Java resolved by reqour
+     */
+    public Optional<Path> resolveJava(AdjustRequest adjustRequest) {
+        UserSpecifiedAlignmentParameters userSpecifiedAlignmentParameters = switch (adjustRequest.getBuildType()) {
+            case MVN, MVN_RPM, NPM -> CommonManipulatorConfigUtils
+                    .parseUserSpecifiedAlignmentParameters(adjustRequest);
+            case GRADLE -> CommonManipulatorConfigUtils
+                    .parseUserSpecifiedAlignmentParameters(adjustRequest, "t", "target");
+            case SBT, RPM -> null;
+        };
+        if (userSpecifiedAlignmentParameters == null) {
+            return Optional.empty();
+        }
+        // the manipulator itself warns about deprecated parameters, hence no user logging here
+        return Optional.of(
+                CommonManipulatorConfigUtils.getJavaLocation(
+                        NOPLogger.NOP_LOGGER,
+                        userSpecifiedAlignmentParameters.getAlignmentParameters()));
+    }
+
+    /**
+     * Start the Java (if any) and read the files of the manipulator of the given request.
+     */
+    public void warmUp(AdjustRequest adjustRequest, Optional<Path> java) {
+        java.ifPresent(this::startJava);
+        getManipulatorFiles(adjustRequest).forEach(ManipulatorWarmUp::readFile);
+    }
+
+    private List<Path> getManipulatorFiles(AdjustRequest adjustRequest) {
+        AlignmentConfig alignmentConfig = config.alignment();
+        List<Path> files = new ArrayList<>();
+        switch (adjustRequest.getBuildType()) {
+            case MVN, MVN_RPM -> {
+                files.add(alignmentConfig.mvnProviderConfig().cliJarPath());
+                files.add(
+                        adjustRequest.isTempBuild() ? alignmentConfig.mvnProviderConfig().temporarySettingsFilePath()
+                                : alignmentConfig.mvnProviderConfig().defaultSettingsFilePath());
+            }
+            case GRADLE -> {
+                files.add(alignmentConfig.gradleProviderConfig().cliJarPath());
+                files.add(alignmentConfig.gradleProviderConfig().gradleAnalyzerPluginInitFilePath());
+            }
+            case NPM -> files.add(alignmentConfig.npmProviderConfig().cliJarPath());
+            case SBT -> files.add(alignmentConfig.scalaProviderConfig().sbtPath());
+            case RPM -> {
+            }
+        }
+        return files;
+    }
+
+    private void startJava(Path java) {
+        int exitCode = processExecutor.execute(
+                ProcessContext.withWorkdirAndIgnoringOutput(Path.of(System.getProperty("java.io.tmpdir")))
+                        .command(List.of(java.toString(), "-Xshare:auto", "-version"))
+                        .build());
+        log.debug("Warm-up start of Java '{}' ended with exit code {}", java, exitCode);
+    }
+
+    private static void readFile(Path file) {
+        if (!Files.isRegularFile(file)) {
+            log.debug("File '{}' of the manipulator does not exist, nothing to warm up", file);
+            return;
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            log.debug("Cannot read file '{}' of the manipulator", file, e);
+        }
+    }
+}
@@ -22,4 +22,25 @@ public interface RepositoryFetcher {
      * @param workdir directory where to clone
      */
     CloningResult cloneRepository(AdjustRequest adjustRequest, Path workdir);
+
+    /**
+     * Check that the downstream repository of the given adjust request protects the tags, which the alignment is
+     * going to push. The check does not depend on the cloning, hence it can run concurrently with it.
+     *
+     * @param adjustRequest adjust request specifying the downstream repository
+     */
+    default void checkTagProtection(AdjustRequest adjustRequest) {
+    }
+
+    /**
+     * Push the ref, which was cloned from the upstream repository (see {@link CloningResult#isSyncPushPending()}), into
+     * the downstream repository. Unlike the cloning, it writes into the downstream, hence it has to run only once
+     * {@link #checkTagProtection(AdjustRequest)} succeeded.
+     *
+     * @param adjustRequest adjust request specifying the downstream repository
+     * @param cloningResult result of the cloning
+     * @param workdir directory with the cloned repository
+     */
+    default void pushSyncedRef(AdjustRequest adjustRequest, CloningResult cloningResult, Path workdir) {
+    }
 }
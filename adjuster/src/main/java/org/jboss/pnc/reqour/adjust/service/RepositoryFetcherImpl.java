@@ -7,8 +7,6 @@ package org.jboss.pnc.reqour.adjust.service;
 import static org.jboss.pnc.reqour.common.utils.GitUtils.DEFAULT_REMOTE_NAME;
 import static org.jboss.pnc.reqour.common.utils.GitUtils.FETCH_HEAD;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -23,13 +21,20 @@ import org.apache.commons.io.FileUtils;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.pnc.api.reqour.dto.AdjustRequest;
 import org.jboss.pnc.api.reqour.dto.InternalGitRepositoryUrl;
+import org.jboss.pnc.reqour.adjust.config.CloningConfig;
+import org.jboss.pnc.reqour.adjust.config.ReqourAdjusterConfig;
+import org.jboss.pnc.reqour.adjust.config.manipulator.common.CommonManipulatorConfigUtils;
 import org.jboss.pnc.reqour.adjust.exception.AdjusterException;
 import org.jboss.pnc.reqour.adjust.model.CloningResult;
 import org.jboss.pnc.reqour.common.GitCommands;
+import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.common.utils.URLUtils;
 import org.jboss.pnc.reqour.config.ConfigConstants;
 import org.jboss.pnc.reqour.config.ConfigUtils;
+import org.jboss.pnc.reqour.enums.LfsFetchScope;
+import org.jboss.pnc.reqour.enums.TagFetchMode;
 import org.jboss.pnc.reqour.model.ProcessContext;
+import org.jboss.pnc.reqour.model.RemoteRefIndex;
 import org.jboss.pnc.reqour.runtime.UserLogger;
 import org.jboss.pnc.reqour.service.GitCloneService;
 import org.jboss.pnc.reqour.service.scmcreation.GitHubApiService;
@@ -51,6 +56,9 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
     @Inject
     ConfigUtils configUtils;
 
+    @Inject
+    ReqourAdjusterConfig config;
+
     @Inject
     GitCommands gitCommands;
 
@@ -67,22 +75,30 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
     Optional<List<String>> internalUrls;
 
     public CloningResult cloneRepository(AdjustRequest adjustRequest, Path workdir) {
-        checkTagProtection(adjustRequest);
         String gitUsername = configUtils.getActiveGitProviderConfig().username();
+        Optional<String> sparseDirectory = getSparseDirectory(adjustRequest);
 
         final boolean isRefInternal;
+        final boolean isSyncPushPending;
         if (syncEnabled(adjustRequest)) {
             userLogger.info("Auto-Sync feature activated");
-            isRefInternal = syncExternalRepo(adjustRequest, workdir, gitUsername);
+            SyncResult syncResult = syncExternalRepo(adjustRequest, workdir, gitUsername, sparseDirectory);
+            isRefInternal = syncResult.isRefInternal();
+            isSyncPushPending = syncResult.isPushPending();
         } else {
             userLogger.warn("Auto-Sync feature disabled, working with the downstream repository only");
             shallowCloneWithTags(
                     URLUtils.addUsernameToUrl(adjustRequest.getInternalUrl().getReadwriteUrl(), gitUsername),
                     adjustRequest.getRef(),
-                    workdir);
+                    workdir,
+                    sparseDirectory);
+            // nothing is synced, the objects of the aligned ref are all what the alignment needs
             gitCommands.setupGitLfsIfPresent(
+                    LfsFetchScope.REF,
+                    "HEAD",
                     ProcessContext.withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn));
             isRefInternal = true;
+            isSyncPushPending = false;
         }
 
         // *Only* after the repository has been successfully cloned
@@ -92,13 +108,27 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
         // Get upstream commit before transforming into fat repository (since that potentially creates a new commit)
         String upstreamCommitId = gitCommands.revParse(workdir);
         userLogger.info("Current Commit ID of repo is: {}", upstreamCommitId);
-        CloningResult cloningResult = new CloningResult(upstreamCommitId, isRefInternal);
-        transformGitSubmodulesIntoFatRepository(workdir);
+        CloningResult cloningResult = new CloningResult(upstreamCommitId, isRefInternal, isSyncPushPending);
+        transformGitSubmodulesIntoFatRepository(workdir, sparseDirectory.isPresent());
 
         return cloningResult;
     }
 
-    private void checkTagProtection(AdjustRequest adjustRequest) {
+    @Override
+    public void pushSyncedRef(AdjustRequest adjustRequest, CloningResult cloningResult, Path workdir) {
+        if (!cloningResult.isSyncPushPending()) {
+            return;
+        }
+        // the commit is pushed explicitly, since the transformation into the fat repository may have committed on top
+        gitCloneService.pushClonedChanges(
+                adjustRequest.getRef(),
+                cloningResult.upstreamCommit(),
+                DEFAULT_REMOTE_NAME,
+                ProcessContext.withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn));
+    }
+
+    @Override
+    public void checkTagProtection(AdjustRequest adjustRequest) {
         String projectPath = extractProjectPathFromInternalUrl(adjustRequest.getInternalUrl());
         log.debug(
                 "Checking whether tag protection respects Reqour's tag protection configuration for project '{}'",
@@ -126,18 +156,45 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
         };
     }
 
+    private Optional<String> getSparseDirectory(AdjustRequest adjustRequest) {
+        if (!config.cloning().sparseCheckout()) {
+            return Optional.empty();
+        }
+        Optional<String> projectDirectory = CommonManipulatorConfigUtils.getProjectDirectory(adjustRequest)
+                .map(Path::toString);
+        projectDirectory.ifPresentOrElse(
+                directory -> userLogger.info("Checking out only the directory '{}' of the repository", directory),
+                () -> log.debug("Location of the project is not specified, checking out the whole repository"));
+        return projectDirectory;
+    }
+
     private boolean syncEnabled(AdjustRequest adjustRequest) {
         return adjustRequest.isSync() && adjustRequest.getOriginRepoUrl() != null
                 && !adjustRequest.getOriginRepoUrl().isBlank();
     }
 
-    private boolean syncExternalRepo(AdjustRequest adjustRequest, Path workdir, String gitUsername) {
+    private SyncResult syncExternalRepo(
+            AdjustRequest adjustRequest,
+            Path workdir,
+            String gitUsername,
+            Optional<String> sparseDirectory) {
         boolean isRefInternal = false;
+        boolean isPushPending = false;
 
         ProcessContext.Builder processContextBuilder = ProcessContext
                 .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
-        gitCommands.clone(adjustRequest.getOriginRepoUrl(), processContextBuilder);
-        gitCommands.setupGitLfsIfPresent(processContextBuilder);
+        // the whole history of the ref is pushed into the downstream, which would fetch every filtered object lazily
+        config.cloning()
+                .filter()
+                .ifPresent(filter -> log.debug("Not filtering objects by '{}' when syncing the repository", filter));
+        gitCommands.clone(
+                adjustRequest.getOriginRepoUrl(),
+                Optional.empty(),
+                sparseDirectory.isPresent(),
+                processContextBuilder);
+        sparseDirectory
+                .ifPresent(directory -> gitCommands.setSparseCheckout(List.of(directory), processContextBuilder));
+        gitCommands.applyTuningProfile(processContextBuilder);
 
         if (gitCommands.doesReferenceExistRemotely(adjustRequest.getRef(), processContextBuilder)) {
             boolean isRefPR = GitCommands.isReferencePR(adjustRequest.getRef());
@@ -146,6 +203,8 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
             } else {
                 gitCommands.checkout(adjustRequest.getRef(), true, processContextBuilder);
             }
+            // the ref is going to be pushed into the downstream repository
+            gitCommands.setupGitLfsForPushIfPresent("HEAD", processContextBuilder);
 
             gitCommands.renameRemote(DEFAULT_REMOTE_NAME, ORIGIN_REMOTE, processContextBuilder);
             gitCommands.addRemote(
@@ -158,34 +217,16 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
                         "Syncing of Pull Request to downstream repository disabled since the ref '{}' is a pull request",
                         adjustRequest.getRef());
             } else {
-                gitCloneService.pushClonedChanges(adjustRequest.getRef(), DEFAULT_REMOTE_NAME, processContextBuilder);
+                // pushed by pushSyncedRef(), once the tag protection of the downstream is checked
+                isPushPending = true;
             }
         } else {
             log.warn(
                     "Upstream repository does not have the reference '{}'. Trying to see if it is present in downstream repository",
                     adjustRequest.getRef());
 
-            try {
-                FileUtils.deleteDirectory(workdir.toFile());
-                Files.createDirectory(workdir);
-            } catch (IOException e) {
-                throw new RuntimeException(
-                        "Unable to delete and create empty working directory where to clone downstream repository content");
-            }
-
-            gitCommands.clone(
-                    URLUtils.addUsernameToUrl(adjustRequest.getInternalUrl().getReadwriteUrl(), gitUsername),
-                    processContextBuilder);
-            if (gitCommands.doesReferenceExistRemotely(adjustRequest.getRef(), processContextBuilder)) {
-                log.debug("Downstream repository has the ref, but not the upstream one. No syncing required!");
-                gitCommands.checkout(adjustRequest.getRef(), true, processContextBuilder);
-                isRefInternal = true;
-            } else {
-                throw new AdjusterException(
-                        String.format(
-                                "Neither upstream nor downstream repository has the reference '%s' present. Cannot proceed",
-                                adjustRequest.getRef()));
-            }
+            fallBackToDownstream(adjustRequest, gitUsername, processContextBuilder);
+            isRefInternal = true;
         }
 
         List<String> internalUrls = this.internalUrls.orElse(Collections.emptyList());
@@ -196,19 +237,101 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
             }
         }
 
-        gitCommands.fetchTags(DEFAULT_REMOTE_NAME, false, processContextBuilder);
-        return isRefInternal;
+        if (config.treeIndex().tagFetch() == TagFetchMode.ALL) {
+            gitCommands.fetchTags(DEFAULT_REMOTE_NAME, false, processContextBuilder);
+        }
+        return new SyncResult(isRefInternal, isPushPending);
     }
 
-    private void shallowCloneWithTags(String url, String ref, Path workdir) {
+    /**
+     * Switch the repository cloned from the upstream to the downstream repository, which is expected to have the ref.
+     * The downstream is added as a further remote of the same repository (the same way as when the upstream is synced),
+     * hence the objects already fetched from the upstream are reused, and only the missing ones are fetched.
+     */
+    private void fallBackToDownstream(
+            AdjustRequest adjustRequest,
+            String gitUsername,
+            ProcessContext.Builder processContextBuilder) {
+        String ref = adjustRequest.getRef();
+        gitCommands.renameRemote(DEFAULT_REMOTE_NAME, ORIGIN_REMOTE, processContextBuilder);
+        gitCommands.addRemote(
+                DEFAULT_REMOTE_NAME,
+                URLUtils.addUsernameToUrl(adjustRequest.getInternalUrl().getReadwriteUrl(), gitUsername),
+                processContextBuilder);
+
+        long reusedBytes = gitCommands.getObjectStoreSize(processContextBuilder);
+        RemoteRefIndex downstreamRefs = gitCommands.getRemoteRefIndex(DEFAULT_REMOTE_NAME, processContextBuilder);
+        if (downstreamRefs.hasBranch(ref)) {
+            String branchRef = RemoteRefIndex.BRANCH_PREFIX + ref;
+            String trackingRef = "refs/remotes/" + DEFAULT_REMOTE_NAME + "/" + ref;
+            gitCommands.fetchRef(
+                    DEFAULT_REMOTE_NAME,
+                    "+" + branchRef + ":" + trackingRef,
+                    false,
+                    false,
+                    processContextBuilder);
+        } else if (downstreamRefs.hasTag(ref)) {
+            String tagRef = RemoteRefIndex.TAG_PREFIX + ref;
+            gitCommands.fetchRef(DEFAULT_REMOTE_NAME, "+" + tagRef + ":" + tagRef, false, false, processContextBuilder);
+        } else if (!GitCommands.isReferencePR(ref)) {
+            // e.g. a commit, which is present only in the downstream
+            fetchDownstreamCommit(ref, processContextBuilder);
+        }
+
+        // the commits are checked locally, hence only once fetched from the downstream
+        if (!gitCommands.doesReferenceExistRemotely(ref, processContextBuilder)) {
+            throw new AdjusterException(
+                    String.format(
+                            "Neither upstream nor downstream repository has the reference '%s' present. Cannot proceed",
+                            ref));
+        }
+        log.debug("Downstream repository has the ref, but not the upstream one. No syncing required!");
+
+        long fetchedBytes = Math.max(0, gitCommands.getObjectStoreSize(processContextBuilder) - reusedBytes);
+        userLogger.info(
+                "Reused {} bytes of objects cloned from upstream, fetched {} bytes from downstream",
+                reusedBytes,
+                fetchedBytes);
+
+        gitCommands.checkout(ref, true, processContextBuilder);
+    }
+
+    /**
+     * Fetch the commit from the downstream directly, or, in case the downstream does not allow fetching commits by SHA
+     * (or the ref is not a full SHA), fetch all its branches and tags.
+     */
+    private void fetchDownstreamCommit(String ref, ProcessContext.Builder processContextBuilder) {
+        try {
+            gitCommands.fetchRef(DEFAULT_REMOTE_NAME, ref, false, false, processContextBuilder);
+        } catch (GitException ex) {
+            log.debug("Cannot fetch '{}' from the downstream directly, fetching its branches and tags", ref, ex);
+            gitCommands.fetchRef(
+                    DEFAULT_REMOTE_NAME,
+                    "+" + RemoteRefIndex.BRANCH_PREFIX + "*:refs/remotes/" + DEFAULT_REMOTE_NAME + "/*",
+                    false,
+                    false,
+                    processContextBuilder);
+            gitCommands.fetchTags(DEFAULT_REMOTE_NAME, false, processContextBuilder);
+        }
+    }
+
+    private void shallowCloneWithTags(String url, String ref, Path workdir, Optional<String> sparseDirectory) {
         ProcessContext.Builder processContextBuilder = ProcessContext
                 .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
 
         gitCommands.init(false, processContextBuilder);
         gitCommands.addRemote(DEFAULT_REMOTE_NAME, url, processContextBuilder);
+        Optional<String> filter = config.cloning().filter();
+        filter.ifPresent(f -> gitCommands.configurePartialClone(DEFAULT_REMOTE_NAME, f, processContextBuilder));
+        sparseDirectory
+                .ifPresent(directory -> gitCommands.setSparseCheckout(List.of(directory), processContextBuilder));
         gitCommands.fetchRef(DEFAULT_REMOTE_NAME, ref, true, false, processContextBuilder);
+        // nothing is checked out yet, hence only the size of the fetched objects decides the profile
+        gitCommands.applyTuningProfile(processContextBuilder);
         gitCommands.checkout(FETCH_HEAD, false, processContextBuilder);
-        gitCommands.fetchTags(DEFAULT_REMOTE_NAME, true, processContextBuilder);
+        if (config.treeIndex().tagFetch() == TagFetchMode.ALL) {
+            gitCommands.fetchTags(DEFAULT_REMOTE_NAME, true, processContextBuilder);
+        }
     }
 
     /**
@@ -216,7 +339,7 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
      * <a href="https://www.atlassian.com/git/articles/core-concept-workflows-and-tips#integrate-submodule">Atlassian
      * docs</a>.
      */
-    private void transformGitSubmodulesIntoFatRepository(Path workdir) {
+    private void transformGitSubmodulesIntoFatRepository(Path workdir, boolean sparseCheckout) {
         String gitModulesFilename = ".gitmodules";
         Path submodulesFile = workdir.resolve(gitModulesFilename);
 
@@ -227,25 +350,37 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
         userLogger.debug("Repository '{}' is using git submodules, transforming into fat repository", workdir);
         ProcessContext.Builder processContextBuilder = ProcessContext
                 .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
-        gitCommands.submoduleUpdateInit(processContextBuilder);
-
-        List<String> submoduleLocations = getSubmoduleLocations(submodulesFile);
-        for (var submoduleLocation : submoduleLocations) {
-            // 1) Delete the reference to the submodule from the index, but keep the files
-            gitCommands.remove(submoduleLocation, true, processContextBuilder);
-
-            // 2) Remove the .git metadata file
-            try {
-                log.debug("Removing .git file inside the submodule {}", submoduleLocation);
-                // use forceDelete since it will delete the .git, whether it's a file or a directory
-                FileUtils.forceDelete(workdir.resolve(submoduleLocation).resolve(".git").toFile());
-            } catch (IOException e) {
-                throw new RuntimeException("Cannot delete .git file inside the submodule " + submoduleLocation, e);
+        if (sparseCheckout) {
+            // submodules outside the sparse checkout would not be initialized, hence they could not be transformed
+            userLogger.info("Repository is using git submodules, checking out the whole repository");
+            gitCommands.disableSparseCheckout(processContextBuilder);
+        }
+        CloningConfig.SubmodulesConfig submodulesConfig = config.cloning().submodules();
+        gitCommands.submoduleUpdateInit(
+                submodulesConfig.jobs(),
+                submodulesConfig.shallow(),
+                config.cloning().filter(),
+                processContextBuilder);
+
+        List<String> submoduleLocations = gitCommands.getSubmodulePaths(submodulesFile, processContextBuilder);
+        if (!submoduleLocations.isEmpty()) {
+            // 1) Delete the references to the submodules from the index, but keep the files
+            gitCommands.remove(submoduleLocations, true, processContextBuilder);
+
+            // 2) Remove the .git metadata files
+            for (var submoduleLocation : submoduleLocations) {
+                try {
+                    log.debug("Removing .git file inside the submodule {}", submoduleLocation);
+                    // use forceDelete since it will delete the .git, whether it's a file or a directory
+                    FileUtils.forceDelete(workdir.resolve(submoduleLocation).resolve(".git").toFile());
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot delete .git file inside the submodule " + submoduleLocation, e);
+                }
             }
 
-            // 3) Add the submodule to the main repository index
+            // 3) Add the submodules to the main repository index
             // [NCL-9675] force a submodule to be added even though it's present in the .gitignore
-            gitCommands.add(submoduleLocation, true, processContextBuilder);
+            gitCommands.add(submoduleLocations, true, processContextBuilder);
         }
 
         // 4) Delete the .gitmodules file
@@ -255,21 +390,6 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
         gitCommands.commit("Removing submodules and transforming into fat repository", processContextBuilder);
     }
 
-    static List<String> getSubmoduleLocations(Path submodulesFile) {
-        String pathPrefix = "path =";
-        try (BufferedReader br = new BufferedReader(new FileReader(submodulesFile.toFile()))) {
-            // we don't use \w+ to get the path since the path might contain a slash, which is not a word character
-            return br.lines()
-                    .filter(l -> l.matches(String.format("^\\s+%s \\S+$", pathPrefix)))
-                    .map(l -> l.replace(pathPrefix, "").stripLeading())
-                    .toList();
-        } catch (IOException e) {
-            throw new RuntimeException(
-                    String.format("Unable to extract submodule locations from '%s'", submodulesFile),
-                    e);
-        }
-    }
-
     private String extractProjectPathFromInternalUrl(InternalGitRepositoryUrl internalUrl) {
         String result = internalUrl.getReadwriteUrl().split(":")[1];
         String gitSuffix = ".git";
@@ -279,4 +399,7 @@ public class RepositoryFetcherImpl implements RepositoryFetcher {
 
         return result;
     }
+
+    private record SyncResult(boolean isRefInternal, boolean isPushPending) {
+    }
 }
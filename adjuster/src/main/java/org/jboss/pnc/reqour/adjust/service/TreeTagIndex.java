@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.adjust.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.pnc.reqour.common.GitCommands;
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index of the alignment tags by the tree SHA of the tagged commit, kept in the downstream repository. Every entry is
+ * the ref {@code refs/reqour/tree-index/<tree SHA>/<tag name>} pointing to the tag object, hence looking the tag up
+ * is a single fetch of the refs under the prefix of the tree (which the server filters by the ref prefix), instead of
+ * fetching and scanning all the tags.
+ */
+@ApplicationScoped
+@Slf4j
+public class TreeTagIndex {
+
+    static final String INDEX_REFS = "refs/reqour/tree-index/";
+    private static final String TAG_REFS = "refs/tags/";
+
+    @Inject
+    GitCommands gitCommands;
+
+    /**
+     * Look up the tag of the tree in the index at the remote. The found tag is created locally too.
+     *
+     * @return name of the tag, or empty in case the tree is not in the index (or the index cannot be fetched)
+     */
+    public Optional<String> findTag(String remote, String treeSha, ProcessContext.Builder processContextBuilder) {
+        String treeRefs = INDEX_REFS + treeSha + "/";
+        try {
+            // history of the tagged commit is not needed, fetching it would deepen a shallow workdir
+            boolean shallow = gitCommands.isShallowRepository(processContextBuilder);
+            gitCommands
+                    .fetchRef(remote, "+" + treeRefs + "*:" + treeRefs + "*", shallow, false, processContextBuilder);
+        } catch (GitException e) {
+            log.warn("Cannot fetch the tree index from '{}', considering the tree not indexed", remote, e);
+            return Optional.empty();
+        }
+
+        Map<String, String> entries = gitCommands.listLocalRefs(treeRefs, processContextBuilder);
+        if (entries.isEmpty()) {
+            log.debug("Tree {} is not in the index", treeSha);
+            return Optional.empty();
+        }
+
+        Map.Entry<String, String> entry = entries.entrySet().iterator().next();
+        String tagName = entry.getKey().substring(treeRefs.length());
+        if (!gitCommands.doesTagExistLocally(tagName, processContextBuilder)) {
+            // the index points to the tag object itself, which was fetched along with the index
+            gitCommands.updateRef(TAG_REFS + tagName, entry.getValue(), processContextBuilder);
+        }
+        log.debug("Tree {} is indexed as tag '{}'", treeSha, tagName);
+        return Optional.of(tagName);
+    }
+
+    /**
+     * Add the tag into the local index. The entry gets to the remote by pushing the returned refspec, which is meant to
+     * be pushed together with the tag itself. The index is an optimization only, hence failing to add the tag is
+     * reported, but not propagated.
+     *
+     * @return refspec pushing the entry, or empty in case the entry cannot be created
+     */
+    public Optional<String> addTag(String treeSha, String tagName, ProcessContext.Builder processContextBuilder) {
+        String indexRef = INDEX_REFS + treeSha + "/" + tagName;
+        try {
+            gitCommands.updateRef(indexRef, TAG_REFS + tagName, processContextBuilder);
+        } catch (GitException e) {
+            log.warn("Cannot add tag '{}' of tree {} into the tree index", tagName, treeSha, e);
+            return Optional.empty();
+        }
+        // the entries are owned by reqour, hence a stale entry of the same name is overwritten
+        return Optional.of("+" + indexRef + ":" + indexRef);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.adjust.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.MDC;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Small graph of the stages of the alignment. A stage starts once all the stages it depends on have succeeded, hence
+ * the stages independent of each other run concurrently (every stage on its own virtual thread, with MDC of the thread
+ * which added it). Once any of the stages a stage depends on fails, the stage is skipped.<br/>
+ * <br/>
+ * Failures are reported as if the stages ran sequentially, in the order they were added into the graph, i.e. awaiting
+ * a stage throws the failure of the first added stage which failed, out of the stage itself and all the stages it
+ * (transitively) depends on.<br/>
+ * <br/>
+ * Closing the graph cancels the stages which are still running (their threads are interrupted, which also destroys the
+ * processes they wait for), and waits for them, so that nothing is left running e.g. in the working directory, once it
+ * is deleted.
+ */
+@Slf4j
+public final class StageGraph implements AutoCloseable {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Stage<?>> stages = new ArrayList<>();
+
+    /**
+     * Add the stage, which starts once all the given stages have succeeded (or right away, when there is none).
+     */
+    public synchronized <T> Stage<T> add(String name, Callable<T> body, Stage<?>... dependsOn) {
+        Stage<T> stage = new Stage<>(name, stages.size(), List.of(dependsOn));
+        stages.add(stage);
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        CompletableFuture.allOf(stage.dependsOn.stream().map(s -> s.result).toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, dependencyFailure) -> {
+                    if (dependencyFailure != null) {
+                        log.debug("Stage '{}' is skipped, since a stage it depends on failed", name);
+                        stage.result.completeExceptionally(dependencyFailure);
+                        return;
+                    }
+                    try {
+                        executor.execute(() -> stage.run(body, mdc));
+                    } catch (RejectedExecutionException e) {
+                        stage.result.cancel(false);
+                    }
+                });
+        return stage;
+    }
+
+    /**
+     * Add the stage, which is not required to succeed (e.g. a warm-up). Its failure is only logged, and the stage
+     * results in null then.
+     */
+    public <T> Stage<T> addBestEffort(String name, Callable<T> body, Stage<?>... dependsOn) {
+        return add(name, () -> {
+            try {
+                return body.call();
+            } catch (Exception e) {
+                log.warn("Best-effort stage '{}' failed, continuing without it", name, e);
+                return null;
+            }
+        }, dependsOn);
+    }
+
+    /**
+     * Wait for the stage and return its result.
+     *
+     * @throws Exception failure of the first added stage which failed, out of the given stage and all the stages it
+     *         depends on
+     */
+    public <T> T await(Stage<T> stage) throws Exception {
+        try {
+            return stage.result.get();
+        } catch (ExecutionException e) {
+            Throwable failure = firstFailure(stage);
+            if (failure instanceof Exception exception) {
+                throw exception;
+            }
+            if (failure instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Stage<?>> added;
+        synchronized (this) {
+            added = List.copyOf(stages);
+        }
+        added.forEach(stage -> stage.result.cancel(false));
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Some of the stages are still running after {} seconds", CLOSE_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Throwable firstFailure(Stage<?> stage) {
+        Set<Stage<?>> visited = new LinkedHashSet<>();
+        Deque<Stage<?>> toVisit = new ArrayDeque<>(List.of(stage));
+        while (!toVisit.isEmpty()) {
+            Stage<?> current = toVisit.pop();
+            if (visited.add(current)) {
+                toVisit.addAll(current.dependsOn);
+            }
+        }
+        return visited.stream()
+                .filter(s -> s.failure != null)
+                .min(Comparator.comparingInt(s -> s.order))
+                .<Throwable> map(s -> s.failure)
+                .orElseGet(() -> new CancellationException(String.format("Stage '%s' was cancelled", stage.name)));
+    }
+
+    /**
+     * Stage of the graph, see {@link StageGraph#add(String, Callable, Stage[])}.
+     */
+    public static final class Stage<T> {
+
+        private final String name;
+        private final int order;
+        private final List<Stage<?>> dependsOn;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile Throwable failure;
+
+        private Stage(String name, int order, List<Stage<?>> dependsOn) {
+            this.name = name;
+            this.order = order;
+            this.dependsOn = dependsOn;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Result of the stage, which has already succeeded, e.g. within a stage depending on this one.
+         */
+        public T getResult() {
+            return result.join();
+        }
+
+        private void run(Callable<T> body, Map<String, String> mdc) {
+            if (result.isDone()) {
+                return;
+            }
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            log.debug("Stage '{}' started", name);
+            try {
+                result.complete(body.call());
+                log.debug("Stage '{}' succeeded", name);
+            } catch (Throwable t) {
+                failure = t;
+                result.completeExceptionally(t);
+                log.debug("Stage '{}' failed", name, t);
+            } finally {
+                MDC.clear();
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import jakarta.inject.Inject;
 
 import org.jboss.pnc.api.constants.BuildConfigurationParameterKeys;
 import org.jboss.pnc.api.enums.AlignmentPreference;
+import org.jboss.pnc.api.enums.BuildType;
 import org.jboss.pnc.api.reqour.dto.AdjustRequest;
 import org.jboss.pnc.reqour.adjust.common.TestDataFactory;
 import org.jboss.pnc.reqour.adjust.config.ReqourAdjusterConfig;
@@ -140,6 +141,55 @@ class CommonManipulatorConfigUtilsTest {
         assertThat(actual).isEqualTo(expected);
     }
 
+    @Test
+    void getProjectDirectory_mavenLocation_returnsDirectoryOfPomFile() {
+        AdjustRequest request = AdjustRequest.builder()
+                .buildType(BuildType.MVN)
+                .buildConfigParameters(
+                        Map.of(BuildConfigurationParameterKeys.ALIGNMENT_PARAMETERS, "-Dfoo=bar --file=h2/pom.xml"))
+                .build();
+
+        assertThat(CommonManipulatorConfigUtils.getProjectDirectory(request)).contains(Path.of("h2"));
+    }
+
+    @Test
+    void getProjectDirectory_mavenDirectoryLocation_returnsTheDirectory() {
+        for (String location : List.of("h2", "h2/", "./h2")) {
+            AdjustRequest request = AdjustRequest.builder()
+                    .buildType(BuildType.MVN)
+                    .buildConfigParameters(
+                            Map.of(BuildConfigurationParameterKeys.ALIGNMENT_PARAMETERS, "-f " + location))
+                    .build();
+
+            assertThat(CommonManipulatorConfigUtils.getProjectDirectory(request)).as(location)
+                    .contains(Path.of("h2"));
+        }
+    }
+
+    @Test
+    void getProjectDirectory_gradleLocation_returnsTargetDirectory() {
+        AdjustRequest request = AdjustRequest.builder()
+                .buildType(BuildType.GRADLE)
+                .buildConfigParameters(
+                        Map.of(BuildConfigurationParameterKeys.ALIGNMENT_PARAMETERS, "-t dir/subdir -Dfoo=bar"))
+                .build();
+
+        assertThat(CommonManipulatorConfigUtils.getProjectDirectory(request)).contains(Path.of("dir/subdir"));
+    }
+
+    @Test
+    void getProjectDirectory_projectInRootOrOutsideRepository_returnsEmpty() {
+        for (String location : List.of("pom.xml", "./pom.xml", ".", "../other/pom.xml", "../other", "/abs/pom.xml")) {
+            AdjustRequest request = AdjustRequest.builder()
+                    .buildType(BuildType.MVN)
+                    .buildConfigParameters(
+                            Map.of(BuildConfigurationParameterKeys.ALIGNMENT_PARAMETERS, "--file=" + location))
+                    .build();
+
+            assertThat(CommonManipulatorConfigUtils.getProjectDirectory(request)).as(location).isEmpty();
+        }
+    }
+
     @Test
     void extractLocationFromUsersAlignmentParameters_noLocation_returnsUnchangedString() {
         String userSpecifiedAlignmentParams = "-Dfoo=bar  -Dbaz=baz";
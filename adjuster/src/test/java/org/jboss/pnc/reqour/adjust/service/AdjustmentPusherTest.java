@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 
 import jakarta.inject.Inject;
 
@@ -27,7 +28,10 @@ import org.jboss.pnc.reqour.adjust.utils.CommonUtils;
 import org.jboss.pnc.reqour.common.CloneTestUtils;
 import org.jboss.pnc.reqour.common.GitCommands;
 import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.common.utils.GitUtils;
 import org.jboss.pnc.reqour.common.utils.IOUtils;
+import org.jboss.pnc.reqour.model.ProcessContext;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -47,6 +51,12 @@ class AdjustmentPusherTest {
     @Inject
     GitCommands gitCommands;
 
+    @Inject
+    TreeTagIndex treeTagIndex;
+
+    @Inject
+    ProcessExecutor processExecutor;
+
     @BeforeEach
     void setUp() throws IOException, GitAPIException {
         Files.createDirectory(SOURCE_REPO_PATH);
@@ -128,6 +138,73 @@ class AdjustmentPusherTest {
                 .hasMessage("Cannot make the commit");
     }
 
+    @Test
+    void pushAlignedChanges_alignmentChangesDone_indexesTagByTree() {
+        RepoInitializer.makeAlignmentChanges(ADJUST_DIR);
+        AdjustRequest adjustRequest = AdjustRequest.builder()
+                .buildConfigParameters(Collections.emptyMap())
+                .buildType(BuildType.MVN)
+                .build();
+        String version = "1.0-aligned-00043";
+        ManipulatorResult manipulatorResult = ManipulatorResult.builder()
+                .versioningState(
+                        VersioningState.builder()
+                                .executionRootVersion(version)
+                                .build())
+                .build();
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(ADJUST_DIR);
+
+        AdjustmentPushResult actualPushResult = adjustmentPusher
+                .pushAlignedChanges(adjustRequest, manipulatorResult, true);
+
+        String treeSha = gitCommands.revParse(ADJUST_DIR, actualPushResult.commit() + "^{tree}");
+        assertThat(gitCommands.listLocalRefs(TreeTagIndex.INDEX_REFS, processContextBuilder))
+                .containsKey(TreeTagIndex.INDEX_REFS + treeSha + "/" + version);
+
+        // the tag is looked up (and created locally) by the means of the index only
+        processExecutor.execute(processContextBuilder.command(List.of("git", "tag", "-d", version)).build());
+        assertThat(treeTagIndex.findTag(GitUtils.DEFAULT_REMOTE_NAME, treeSha, processContextBuilder))
+                .contains(version);
+        assertThat(gitCommands.doesTagExistLocally(version, processContextBuilder)).isTrue();
+        assertThat(
+                treeTagIndex.findTag(
+                        GitUtils.DEFAULT_REMOTE_NAME,
+                        "0000000000000000000000000000000000000000",
+                        processContextBuilder))
+                .isEmpty();
+    }
+
+    @Test
+    void pushAlignedChanges_pushedAgain_succeedsWithSameTagAndBranch() {
+        RepoInitializer.makeAlignmentChanges(ADJUST_DIR);
+        AdjustRequest adjustRequest = AdjustRequest.builder()
+                .buildConfigParameters(Collections.emptyMap())
+                .buildType(BuildType.MVN)
+                .build();
+        String version = "1.0-aligned-00044";
+        ManipulatorResult manipulatorResult = ManipulatorResult.builder()
+                .versioningState(
+                        VersioningState.builder()
+                                .executionRootVersion(version)
+                                .build())
+                .build();
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(ADJUST_DIR);
+
+        AdjustmentPushResult firstPushResult = adjustmentPusher
+                .pushAlignedChanges(adjustRequest, manipulatorResult, true);
+        AdjustmentPushResult secondPushResult = adjustmentPusher
+                .pushAlignedChanges(adjustRequest, manipulatorResult, false);
+
+        assertThat(secondPushResult).isEqualTo(firstPushResult);
+        assertThat(gitCommands.doesTagExistAtRemote(GitUtils.DEFAULT_REMOTE_NAME, version, processContextBuilder))
+                .isTrue();
+        assertThat(
+                gitCommands.doesBranchExistAtRemote(
+                        "branch-reqour-" + version + "-" + firstPushResult.commit(),
+                        processContextBuilder))
+                .isTrue();
+    }
+
     @Test
     void findTagByTreeSha_tagDoesNotExist_returnsNull() {
         String foundTag = adjustmentPusher.findTagByTreeSha(SOURCE_REPO_PATH, "non-existing-tree-sha");
@@ -142,4 +219,20 @@ class AdjustmentPusherTest {
 
         assertThat(foundTag).isEqualTo("branch2-merged");
     }
-}
\ No newline at end of file
+
+    @Test
+    void findTagByTreeSha_tagMatchesPattern_returnsTagName() {
+        String foundTag = adjustmentPusher
+                .findTagByTreeSha(SOURCE_REPO_PATH, "b3f9bfdb0af4f367ed47e9ddcb40b49be65d6b0b", "branch2-*");
+
+        assertThat(foundTag).isEqualTo("branch2-merged");
+    }
+
+    @Test
+    void findTagByTreeSha_tagDoesNotMatchPattern_returnsNull() {
+        String foundTag = adjustmentPusher
+                .findTagByTreeSha(SOURCE_REPO_PATH, "b3f9bfdb0af4f367ed47e9ddcb40b49be65d6b0b", "1.0-*");
+
+        assertThat(foundTag).isNull();
+    }
+}
@@ -5,10 +5,12 @@
 package org.jboss.pnc.reqour.adjust.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jboss.pnc.reqour.common.utils.IOUtils.createTempDir;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -22,6 +24,7 @@ import org.jboss.pnc.api.reqour.dto.InternalGitRepositoryUrl;
 import org.jboss.pnc.reqour.adjust.common.RepoInitializer;
 import org.jboss.pnc.reqour.adjust.model.CloningResult;
 import org.jboss.pnc.reqour.common.GitCommands;
+import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.model.ProcessContext;
 import org.jboss.pnc.reqour.service.scmcreation.GitLabApiService;
 import org.junit.jupiter.api.AfterAll;
@@ -84,11 +87,15 @@ class RepositoryFetcherTest {
                 .build();
         CloningResult expectedCloningResult = new CloningResult(
                 gitCommands.revParse(repositoriesRoot.resolve("upstream")),
-                false);
+                false,
+                true);
 
         CloningResult actualCloningResult = repositoryFetcher.cloneRepository(adjustRequest, workdir);
+        repositoryFetcher.pushSyncedRef(adjustRequest, actualCloningResult, workdir);
 
         assertThat(actualCloningResult).isEqualTo(expectedCloningResult);
+        assertThat(gitCommands.revParse(downstreamDir, "refs/heads/main"))
+                .isEqualTo(expectedCloningResult.upstreamCommit());
     }
 
     @Test
@@ -114,6 +121,28 @@ class RepositoryFetcherTest {
         CloningResult actualCloningResult = repositoryFetcher.cloneRepository(adjustRequest, workdir);
 
         assertThat(actualCloningResult).isEqualTo(expectedCloningResult);
+        // the clone of the upstream is reused, the downstream is fetched into it
+        assertThat(gitCommands.revParse(workdir, "refs/remotes/origin_remote/main"))
+                .isEqualTo(gitCommands.revParse(repositoriesRoot.resolve("upstream")));
+    }
+
+    @Test
+    void cloneRepository_syncEnabledCommitAtDownstreamOnly_fetchesCommitFromDownstream() {
+        Mockito.when(gitlabApiService.doesTagProtectionAlreadyExist(Mockito.any())).thenReturn(true);
+        String downstreamCommit = gitCommands.revParse(downstreamDir, "refs/heads/1.1");
+        AdjustRequest adjustRequest = AdjustRequest.builder()
+                .originRepoUrl(RepoInitializer.getUpstreamRemoteUrl(repositoriesRoot))
+                .internalUrl(
+                        InternalGitRepositoryUrl.builder()
+                                .readwriteUrl(RepoInitializer.getDownstreamRemoteUrl(repositoriesRoot))
+                                .build())
+                .sync(true)
+                .ref(downstreamCommit)
+                .build();
+
+        CloningResult actualCloningResult = repositoryFetcher.cloneRepository(adjustRequest, workdir);
+
+        assertThat(actualCloningResult).isEqualTo(new CloningResult(downstreamCommit, true));
     }
 
     @Test
@@ -141,17 +170,34 @@ class RepositoryFetcherTest {
     void testSubmoduleParsing() throws Exception {
         URL url = IOUtils.resourceToURL("/git-files/gitmodule");
         Path path = Paths.get(url.toURI());
-        List<String> submoduleLocations = RepositoryFetcherImpl.getSubmoduleLocations(path);
+        List<String> submoduleLocations = gitCommands.getSubmodulePaths(path, submodulesContext(path));
         assertThat(submoduleLocations).hasSize(1);
         assertThat(submoduleLocations.get(0)).isEqualTo("submodules/quarkus");
 
         // now testing for multiple submodules
         url = IOUtils.resourceToURL("/git-files/gitmodule-multi");
         path = Paths.get(url.toURI());
-        submoduleLocations = RepositoryFetcherImpl.getSubmoduleLocations(path);
+        submoduleLocations = gitCommands.getSubmodulePaths(path, submodulesContext(path));
         assertThat(submoduleLocations).hasSize(2);
         assertThat(submoduleLocations.get(0)).isEqualTo("submodules/quarkus");
         assertThat(submoduleLocations.get(1)).isEqualTo("submodules/quarkus-behive/test");
 
     }
+
+    @Test
+    void testSubmoduleParsing_malformedFile_throwsGitException() throws Exception {
+        Path path = Files.createTempFile("gitmodules", "");
+        try {
+            Files.writeString(path, "[submodule \"quarkus\"\n\tpath = submodules/quarkus\n");
+
+            assertThatThrownBy(() -> gitCommands.getSubmodulePaths(path, submodulesContext(path)))
+                    .isInstanceOf(GitException.class);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static ProcessContext.Builder submodulesContext(Path submodulesFile) {
+        return ProcessContext.withWorkdirAndIgnoringOutput(submodulesFile.getParent());
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.adjust.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class StageGraphTest {
+
+    @Test
+    void await_independentStages_runConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        try (StageGraph stages = new StageGraph()) {
+            StageGraph.Stage<Boolean> first = stages.add("first", () -> {
+                bothStarted.countDown();
+                return bothStarted.await(10, TimeUnit.SECONDS);
+            });
+            StageGraph.Stage<Boolean> second = stages.add("second", () -> {
+                bothStarted.countDown();
+                return bothStarted.await(10, TimeUnit.SECONDS);
+            });
+
+            assertThat(stages.await(first)).isTrue();
+            assertThat(stages.await(second)).isTrue();
+        }
+    }
+
+    @Test
+    void await_dependentStage_getsResultOfDependency() throws Exception {
+        try (StageGraph stages = new StageGraph()) {
+            StageGraph.Stage<String> dependency = stages.add("dependency", () -> "abc");
+            StageGraph.Stage<Integer> dependent = stages
+                    .add("dependent", () -> dependency.getResult().length(), dependency);
+
+            assertThat(stages.await(dependent)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void await_dependencyFailed_dependentSkippedAndFailureOfDependencyThrown() {
+        AtomicBoolean dependentRan = new AtomicBoolean();
+
+        try (StageGraph stages = new StageGraph()) {
+            StageGraph.Stage<Void> dependency = stages.add("dependency", () -> {
+                throw new IllegalStateException("dependency failed");
+            });
+            StageGraph.Stage<Void> dependent = stages.add("dependent", () -> {
+                dependentRan.set(true);
+                return null;
+            }, dependency);
+
+            assertThatThrownBy(() -> stages.await(dependent)).isInstanceOf(IllegalStateException.class)
+                    .hasMessage("dependency failed");
+        }
+        assertThat(dependentRan).isFalse();
+    }
+
+    @Test
+    void await_severalStagesFailed_failureOfFirstAddedStageThrown() {
+        CountDownLatch secondFailed = new CountDownLatch(1);
+
+        try (StageGraph stages = new StageGraph()) {
+            StageGraph.Stage<Void> first = stages.add("first", () -> {
+                secondFailed.await(10, TimeUnit.SECONDS);
+                throw new IllegalStateException("first failed");
+            });
+            StageGraph.Stage<Void> second = stages.add("second", () -> {
+                secondFailed.countDown();
+                throw new IllegalArgumentException("second failed");
+            });
+            StageGraph.Stage<Void> last = stages.add("last", () -> null, first, second);
+
+            assertThatThrownBy(() -> stages.await(second)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> stages.await(last)).isInstanceOf(IllegalStateException.class)
+                    .hasMessage("first failed");
+        }
+    }
+
+    @Test
+    void await_bestEffortStageFailed_resultsInNull() throws Exception {
+        try (StageGraph stages = new StageGraph()) {
+            StageGraph.Stage<String> warmUp = stages.addBestEffort("warm-up", () -> {
+                throw new IllegalStateException("warm-up failed");
+            });
+            StageGraph.Stage<String> dependent = stages
+                    .add("dependent", () -> String.valueOf(warmUp.getResult()), warmUp);
+
+            assertThat(stages.await(dependent)).isEqualTo("null");
+        }
+    }
+
+    @Test
+    void close_runningStage_interrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        try (StageGraph stages = new StageGraph()) {
+            stages.add("long running", () -> {
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return null;
+            });
+            started.await(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(interrupted).isTrue();
+    }
+}
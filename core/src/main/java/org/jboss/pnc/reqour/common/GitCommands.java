@@ -6,26 +6,64 @@ package org.jboss.pnc.reqour.common;
 
 import static org.jboss.pnc.reqour.common.utils.GitUtils.DEFAULT_REMOTE_NAME;
 
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.jboss.pnc.reqour.common.WorkdirScope.LocalState;
+import org.jboss.pnc.reqour.common.backend.BatchGitQueryBackend;
+import org.jboss.pnc.reqour.common.backend.CliGitQueryBackend;
+import org.jboss.pnc.reqour.common.backend.GitQueryBackend;
+import org.jboss.pnc.reqour.common.backend.JGitQueryBackend;
+import org.jboss.pnc.reqour.common.cache.LfsObjectCache;
 import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
 import org.jboss.pnc.reqour.common.utils.GitUtils;
 import org.jboss.pnc.reqour.common.utils.IOUtils;
 import org.jboss.pnc.reqour.config.Committer;
 import org.jboss.pnc.reqour.config.ConfigUtils;
+import org.jboss.pnc.reqour.config.GitConfig;
+import org.jboss.pnc.reqour.enums.GitBackendType;
+import org.jboss.pnc.reqour.enums.GitTuningProfile;
+import org.jboss.pnc.reqour.enums.LfsFetchScope;
 import org.jboss.pnc.reqour.model.ProcessContext;
+import org.jboss.pnc.reqour.model.RemoteRefIndex;
 import org.jboss.pnc.reqour.runtime.UserLogger;
 import org.slf4j.Logger;
+import org.slf4j.MDC;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -38,73 +76,314 @@ public class GitCommands {
 
     public static final String GIT_ATTRIBUTES = ".gitattributes";
     private static final String LFS_PATTERN = "lfs";
+    private static final String ATOMIC_PUSH_NOT_SUPPORTED = "does not support --atomic";
+    private static final List<String> TRANSIENT_PUSH_FAILURES = List.of(
+            "could not read from remote repository",
+            "the remote end hung up unexpectedly",
+            "unexpected disconnect",
+            "early eof",
+            "rpc failed",
+            "connection reset",
+            "connection refused",
+            "connection timed out",
+            "operation timed out",
+            "could not resolve host",
+            "failed to connect",
+            "cannot lock ref",
+            "failed to lock",
+            "unable to create",
+            "incorrect old value provided");
+
+    private static final String INDEX_VERSION = "index.version";
+
+    /**
+     * Maximum length of the paths passed to a single git process, far below {@code ARG_MAX} of any platform (which
+     * counts the environment too).
+     */
+    private static final int MAX_PATHS_LENGTH = 64 * 1024;
+
+    /**
+     * Most of them are git defaults, but they are set explicitly, so that e.g. global config of the host cannot turn
+     * them off. Automatic gc is only a waste of time in the short-living working directories.
+     */
+    private static final Map<String, String> STANDARD_TUNING_SETTINGS = Map.of(
+            "gc.auto",
+            "0",
+            "core.preloadIndex",
+            "true",
+            "index.threads",
+            "true",
+            "pack.threads",
+            "0");
+    private static final Map<String, String> LARGE_TUNING_SETTINGS = Map.of(
+            "core.untrackedCache",
+            "true",
+            "checkout.workers",
+            "0",
+            INDEX_VERSION,
+            "4");
 
     @Inject
     ConfigUtils configUtils;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    LfsObjectCache lfsObjectCache;
+
+    @Inject
+    CliGitQueryBackend cliBackend;
+
+    @Inject
+    JGitQueryBackend jgitBackend;
+
+    @Inject
+    BatchGitQueryBackend batchBackend;
+
     @Inject
     @UserLogger
     Logger userLogger;
 
+    private final ProcessExecutor rawProcessExecutor;
     private final ProcessExecutor processExecutor;
+    private final ConcurrentMap<Path, WorkdirScope> workdirScopes = new ConcurrentHashMap<>();
+    private volatile Optional<String> sshBaseCommand;
 
     @Inject
     public GitCommands(ProcessExecutor processExecutor) {
-        this.processExecutor = processExecutor;
+        this.rawProcessExecutor = processExecutor;
+        this.processExecutor = new SshMultiplexingProcessExecutor(
+                processExecutor,
+                workdir -> Optional.ofNullable(workdirScopes.get(workdir))
+                        .flatMap(WorkdirScope::getSshMultiplexing));
+    }
+
+    /**
+     * Open the scope of a task working in the given directory. Within the scope, the refs advertised by a remote are
+     * listed only once (and then answered from {@link RemoteRefIndex}), until the remote is changed by this class, e.g.
+     * pushed into. Outside any scope, the refs are listed every time they are needed.<br/>
+     * Similarly, {@link BatchGitQueryBackend} keeps its session of the working directory only within the scope, and
+     * read-only queries of the local repository are memoized only within the scope, and SSH connections are shared
+     * only within the scope (see {@link GitConfig.SshMultiplexingConfig}).
+     *
+     * @param workdir working directory of the task
+     * @return scope, which has to be closed once the task is done
+     */
+    public WorkdirScope openWorkdirScope(Path workdir) {
+        Path key = workdir.toAbsolutePath().normalize();
+        WorkdirScope scope = new WorkdirScope(key, openSshMultiplexing(), closedScope -> {
+            batchBackend.disableSessions(key);
+            workdirScopes.remove(key);
+            recordLocalQueries(closedScope);
+            closedScope.getSshMultiplexing().ifPresent(this::closeSshMultiplexing);
+        });
+        if (workdirScopes.putIfAbsent(key, scope) != null) {
+            throw new IllegalStateException(String.format("Scope of the working directory '%s' is already open", key));
+        }
+        batchBackend.enableSessions(key);
+        return scope;
+    }
+
+    private Optional<WorkdirScope> getWorkdirScope(ProcessContext.Builder processContextBuilder) {
+        Path workdir = processContextBuilder.build().getWorkingDirectory();
+        if (workdir == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(workdirScopes.get(workdir.toAbsolutePath().normalize()));
     }
 
+    private SshMultiplexing openSshMultiplexing() {
+        GitConfig.SshMultiplexingConfig config = configUtils.getSshMultiplexingConfig();
+        if (!config.enabled()) {
+            return null;
+        }
+        try {
+            Files.createDirectories(config.controlDirectory());
+            Optional<String> baseCommand = getSshBaseCommand(config);
+            if (baseCommand.isEmpty()) {
+                log.debug("SSH program is set by {}, SSH connections are not shared", SshMultiplexing.GIT_SSH);
+                return null;
+            }
+            return SshMultiplexing.open(config, baseCommand.get());
+        } catch (IOException e) {
+            log.warn("Cannot create SSH control directory, SSH connections are not going to be shared", e);
+            return null;
+        }
+    }
+
+    /**
+     * SSH command the multiplexing extends. Neither the environment, nor the global config changes at runtime, hence
+     * it is resolved only once.
+     */
+    private Optional<String> getSshBaseCommand(GitConfig.SshMultiplexingConfig config) {
+        Optional<String> baseCommand = sshBaseCommand;
+        if (baseCommand == null) {
+            baseCommand = SshMultiplexing.resolveBaseCommand(
+                    System.getenv(),
+                    // outside any repository, i.e. only the global and system config is read
+                    () -> rawProcessExecutor.stdout(
+                            ProcessContext.withWorkdirAndIgnoringOutput(config.controlDirectory())
+                                    .command(GitUtils.getConfigValue("core.sshCommand"))));
+            sshBaseCommand = baseCommand;
+        }
+        return baseCommand;
+    }
+
+    private void closeSshMultiplexing(SshMultiplexing multiplexing) {
+        multiplexing.close(rawProcessExecutor);
+    }
+
+    private void recordLocalQueries(WorkdirScope scope) {
+        log.debug(
+                "Local queries in the scope of '{}': {} answered by the memo, {} run",
+                scope.getWorkdir(),
+                scope.getLocalQueryHits(),
+                scope.getLocalQueryMisses());
+        DistributionSummary.builder("reqour.git.queries.memoized")
+                .description("Local git queries of a task answered by the memo instead of running them")
+                .register(meterRegistry)
+                .record(scope.getLocalQueryHits());
+    }
+
+    /**
+     * Run the read-only query of the local repository, or answer it by the memo of the scope, in case it was already
+     * run within the scope of the working directory (and the state it depends on has not changed since).
+     */
+    private <T> T memoized(
+            LocalState dependsOn,
+            String query,
+            String argument,
+            ProcessContext.Builder processContextBuilder,
+            Supplier<T> runner) {
+        return getWorkdirScope(processContextBuilder)
+                .map(scope -> scope.memoize(dependsOn, query, argument, runner))
+                .orElseGet(runner);
+    }
+
+    private void invalidateLocalQueries(ProcessContext.Builder processContextBuilder, LocalState... changedStates) {
+        if (changedStates.length > 0) {
+            getWorkdirScope(processContextBuilder).ifPresent(scope -> scope.invalidateLocal(changedStates));
+        }
+    }
+
+    private void invalidateRemoteRefs(String remote, ProcessContext.Builder processContextBuilder) {
+        getWorkdirScope(processContextBuilder).ifPresent(scope -> scope.invalidate(remote));
+    }
+
+    private void invalidateAllRemoteRefs(ProcessContext.Builder processContextBuilder) {
+        getWorkdirScope(processContextBuilder).ifPresent(scope -> {
+            scope.invalidateAll();
+            batchBackend.restartSession(scope.getWorkdir());
+        });
+    }
+
+    private GitQueryBackend queryBackend(GitBackendType type) {
+        return switch (type) {
+            case CLI -> cliBackend;
+            case JGIT -> jgitBackend;
+            case BATCH -> batchBackend;
+        };
+    }
+
+    private GitQueryBackend refLookupBackend() {
+        return queryBackend(configUtils.getGitBackendConfig().refLookup());
+    }
+
+    private GitQueryBackend refListingBackend() {
+        return queryBackend(configUtils.getGitBackendConfig().refListing());
+    }
+
+    /**
+     * Execute the git command, which is required to succeed.
+     *
+     * @param changedStates states of the local repository changed by the command, memoized queries depending on them
+     *        are forgotten (even when the command fails, since it could have changed the repository partially)
+     */
     private void executeGitCommand(
             List<String> command,
             ProcessContext.Builder processContextBuilder,
-            String errorMessage) {
-        int exitCode = processExecutor.execute(processContextBuilder.command(command).build());
+            String errorMessage,
+            LocalState... changedStates) {
+        final int exitCode;
+        try {
+            exitCode = processExecutor.execute(processContextBuilder.command(command).build());
+        } finally {
+            invalidateLocalQueries(processContextBuilder, changedStates);
+        }
         if (exitCode != 0) {
             throw new GitException(errorMessage);
         }
     }
 
-    private String getSingleValueResultOfGitCommand(ProcessContext.Builder processContextBuilder) {
-        return processExecutor.stdout(processContextBuilder).stripTrailing();
-    }
-
+    // the lines are collected as they are produced (the stdout consumer of the caller's builder is not used)
     private List<String> getLinesStdoutOfGitCommand(ProcessContext.Builder processContextBuilder) {
-        return IOUtils.splitByNewLine(processExecutor.stdout(processContextBuilder));
+        List<String> lines = new ArrayList<>();
+        processExecutor.visitStdout(processContextBuilder.build(), line -> {
+            lines.add(line);
+            return true;
+        });
+        return lines;
     }
 
     public void add(String filename, boolean force, ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.add(filename, force),
                 processContextBuilder,
-                String.format("Cannot add file '%s'", filename));
+                String.format("Cannot add file '%s'", filename),
+                LocalState.INDEX);
     }
 
     public void add(String filename, ProcessContext.Builder processContextBuilder) {
         add(filename, false, processContextBuilder);
     }
 
+    /**
+     * Add all the files by as few git processes as the limit of the command line length allows (see
+     * {@link #chunkPaths(List, int)}).
+     */
+    public void add(List<String> filenames, boolean force, ProcessContext.Builder processContextBuilder) {
+        for (List<String> chunk : chunkPaths(filenames, MAX_PATHS_LENGTH)) {
+            executeGitCommand(
+                    GitUtils.add(chunk, force),
+                    processContextBuilder,
+                    String.format("Cannot add files %s", chunk),
+                    LocalState.INDEX);
+        }
+    }
+
     public void addAll(ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.addAll(),
                 processContextBuilder,
-                "Cannot add all resources from index to staging area");
+                "Cannot add all resources from index to staging area",
+                LocalState.INDEX);
     }
 
     public void createBranch(String branchName, ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.createBranch(branchName),
                 processContextBuilder,
-                String.format("Unable to create new branch '%s'", branchName));
+                String.format("Unable to create new branch '%s'", branchName),
+                LocalState.REFS);
     }
 
     public List<String> listBranches(ProcessContext.Builder processContextBuilder) {
-        return getLinesStdoutOfGitCommand(processContextBuilder.command(GitUtils.branch()));
+        return memoized(
+                LocalState.REFS,
+                "branch",
+                "",
+                processContextBuilder,
+                () -> List.copyOf(refListingBackend().listBranches(processContextBuilder)));
     }
 
     public void checkout(String ref, boolean force, ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.checkout(ref, force),
                 processContextBuilder,
-                String.format("Cannot checkout to '%s'", ref));
+                String.format("Cannot checkout to '%s'", ref),
+                LocalState.REFS,
+                LocalState.INDEX);
     }
 
     public void clone(String url, ProcessContext.Builder processContextBuilder) {
@@ -115,6 +394,56 @@ public class GitCommands {
                 String.format("Failed to clone repository from '%s'.", url));
     }
 
+    /**
+     * Clone the repository, optionally partially (objects matching the filter are fetched on demand) and sparsely (only
+     * the files in the root directory are checked out until {@link #setSparseCheckout(List, ProcessContext.Builder)}).
+     */
+    public void clone(
+            String url,
+            Optional<String> filter,
+            boolean sparse,
+            ProcessContext.Builder processContextBuilder) {
+        tryClone(
+                u -> GitUtils.clone(u, filter, sparse),
+                processContextBuilder,
+                url,
+                String.format("Failed to clone repository from '%s'.", url));
+    }
+
+    /**
+     * Make the remote a promisor remote of a partial clone, i.e. the objects matching the filter are not fetched from
+     * it, until they are needed.
+     */
+    public void configurePartialClone(String remote, String filter, ProcessContext.Builder processContextBuilder) {
+        executeGitCommand(
+                GitUtils.configureLocally("remote." + remote + ".promisor", "true"),
+                processContextBuilder,
+                String.format("Cannot configure remote '%s' as promisor remote", remote));
+        executeGitCommand(
+                GitUtils.configureLocally("remote." + remote + ".partialclonefilter", filter),
+                processContextBuilder,
+                String.format("Cannot configure filter of partial clone from remote '%s'", remote));
+    }
+
+    /**
+     * Check out only the given directories (and the files of all their parent directories).
+     */
+    public void setSparseCheckout(List<String> directories, ProcessContext.Builder processContextBuilder) {
+        executeGitCommand(
+                GitUtils.sparseCheckoutSet(directories),
+                processContextBuilder,
+                String.format("Cannot set sparse checkout of %s", directories),
+                LocalState.INDEX);
+    }
+
+    public void disableSparseCheckout(ProcessContext.Builder processContextBuilder) {
+        executeGitCommand(
+                GitUtils.sparseCheckoutDisable(),
+                processContextBuilder,
+                "Cannot disable sparse checkout",
+                LocalState.INDEX);
+    }
+
     public void cloneMirror(String url, ProcessContext.Builder processContextBuilder) {
         tryClone(
                 GitUtils::cloneMirror,
@@ -123,6 +452,14 @@ public class GitCommands {
                 String.format("Cannot mirror-clone the repository from '%s'.", url));
     }
 
+    public void cloneBareMirror(String url, ProcessContext.Builder processContextBuilder) {
+        tryClone(
+                GitUtils::cloneBareMirror,
+                processContextBuilder,
+                url,
+                String.format("Cannot mirror-clone the repository from '%s'.", url));
+    }
+
     private void tryClone(
             Function<String, List<String>> commandSupplier,
             ProcessContext.Builder processContextBuilder,
@@ -132,11 +469,23 @@ public class GitCommands {
             errorMessage += " " + githubRepoCloningInfo(url);
         }
 
-        executeGitCommand(commandSupplier.apply(url), processContextBuilder, errorMessage);
+        // the working directory gets new remotes
+        invalidateAllRemoteRefs(processContextBuilder);
+
+        executeGitCommand(
+                commandSupplier.apply(url),
+                processContextBuilder,
+                errorMessage,
+                LocalState.REFS,
+                LocalState.INDEX);
     }
 
     public void commit(String commitMessage, ProcessContext.Builder processContextBuilder) {
-        executeGitCommand(GitUtils.commit(commitMessage), processContextBuilder, "Cannot make the commit");
+        executeGitCommand(
+                GitUtils.commit(commitMessage),
+                processContextBuilder,
+                "Cannot make the commit",
+                LocalState.REFS);
     }
 
     public void configureCommitter(Path workdir) {
@@ -164,13 +513,20 @@ public class GitCommands {
         executeGitCommand(
                 GitUtils.init(bare),
                 processContextBuilder,
-                "Unable to turn the directory into a Git repository");
+                "Unable to turn the directory into a Git repository",
+                LocalState.REFS,
+                LocalState.INDEX);
     }
 
     public boolean doesBranchExistAtRemote(String branch, ProcessContext.Builder processContextBuilder) {
         return doesBranchExistAtRemote(DEFAULT_REMOTE_NAME, branch, processContextBuilder);
     }
 
+    /**
+     * Check the remote-tracking branch, i.e. locally, without talking to the remote. Hence, the remote has to be
+     * fetched (or pushed into) before. Use {@link #getRemoteRefIndex(String, ProcessContext.Builder)} to get the
+     * branches the remote currently advertises.
+     */
     public boolean doesBranchExistAtRemote(String remote, String branch, ProcessContext.Builder processContextBuilder) {
         log.debug("Checking whether branch '{}' exists at remote '{}'", branch, remote);
         return processExecutor
@@ -178,16 +534,108 @@ public class GitCommands {
     }
 
     public boolean doesBranchExistsLocally(String ref, ProcessContext.Builder processContextBuilder) {
-        return processExecutor
-                .execute(processContextBuilder.command(GitUtils.doesBranchExistLocally(ref)).build()) == 0;
+        return memoized(
+                LocalState.REFS,
+                "branch-exists",
+                ref,
+                processContextBuilder,
+                () -> refLookupBackend().doesBranchExistLocally(ref, processContextBuilder));
     }
 
     public void setupGitLfsIfPresent(ProcessContext.Builder processContextBuilder) {
-        if (isLfsPresent(processContextBuilder)) {
-            userLogger.info("LFS detected in the repository");
-            processExecutor.execute(processContextBuilder.command(GitUtils.lfsInstall()).build());
-            processExecutor.execute(processContextBuilder.command(GitUtils.lfsFetchAll()).build());
+        setupGitLfsIfPresent(LfsFetchScope.ALL, "HEAD", processContextBuilder);
+    }
+
+    /**
+     * Fetch LFS objects (in the given scope) in case the repository uses LFS.
+     *
+     * @param scope which LFS objects to fetch
+     * @param ref ref whose objects are fetched, ignored in case of {@link LfsFetchScope#ALL}
+     * @param processContextBuilder process context builder
+     */
+    public void setupGitLfsIfPresent(LfsFetchScope scope, String ref, ProcessContext.Builder processContextBuilder) {
+        if (!isLfsPresent(processContextBuilder)) {
+            return;
+        }
+
+        userLogger.info("LFS detected in the repository, fetching LFS objects (scope: {})", scope);
+        processExecutor.execute(processContextBuilder.command(GitUtils.lfsInstall()).build());
+        switch (scope) {
+            case ALL -> fetchLfsObjects(GitUtils.lfsFetchAll(), GitUtils.lfsListAllObjects(), processContextBuilder);
+            case REF -> fetchLfsObjects(
+                    GitUtils.lfsFetchRef(DEFAULT_REMOTE_NAME, ref, false),
+                    GitUtils.lfsListObjectsOfRef(ref),
+                    processContextBuilder);
+            case REF_WITH_RECENT -> {
+                // only the history of the ref itself, no other (recently updated) refs
+                executeGitCommand(
+                        GitUtils.configureLocally("lfs.fetchrecentrefsdays", "0"),
+                        processContextBuilder,
+                        "Cannot configure fetching of recent LFS objects");
+                executeGitCommand(
+                        GitUtils.configureLocally(
+                                "lfs.fetchrecentcommitsdays",
+                                String.valueOf(lfsObjectCache.getRecentCommitsDays())),
+                        processContextBuilder,
+                        "Cannot configure fetching of recent LFS objects");
+                fetchLfsObjects(
+                        GitUtils.lfsFetchRef(DEFAULT_REMOTE_NAME, ref, true),
+                        GitUtils.lfsListObjectsOfRef(ref),
+                        processContextBuilder);
+            }
+        }
+
+        if (scope != LfsFetchScope.ALL) {
+            // replace pointer files of the checked-out ref, whose objects might have been missing at the checkout
+            processExecutor.execute(processContextBuilder.command(GitUtils.lfsCheckout()).build());
+        }
+    }
+
+    /**
+     * Fetch LFS objects (in the case the repository uses LFS) of the ref, which is going to be pushed into an existing
+     * repository, in the scope of {@link GitConfig.LfsConfig#pushedRefScope()}.
+     */
+    public void setupGitLfsForPushIfPresent(String ref, ProcessContext.Builder processContextBuilder) {
+        setupGitLfsIfPresent(configUtils.getLfsConfig().pushedRefScope(), ref, processContextBuilder);
+    }
+
+    /**
+     * Fetch LFS objects, through the shared {@link LfsObjectCache} (when configured).
+     *
+     * @param fetchCommand command fetching the LFS objects
+     * @param listCommand command listing the LFS objects, which are going to be fetched
+     * @param processContextBuilder process context builder
+     */
+    private void fetchLfsObjects(
+            List<String> fetchCommand,
+            List<String> listCommand,
+            ProcessContext.Builder processContextBuilder) {
+        executeGitCommand(
+                GitUtils.configureLocally(
+                        "lfs.concurrenttransfers",
+                        String.valueOf(lfsObjectCache.getConcurrentTransfers())),
+                processContextBuilder,
+                "Cannot configure concurrent LFS transfers");
+
+        Optional<Path> storage = lfsObjectCache.getStorage();
+        if (storage.isEmpty()) {
+            processExecutor.execute(processContextBuilder.command(fetchCommand).build());
+            return;
         }
+
+        executeGitCommand(
+                GitUtils.configureLocally("lfs.storage", storage.get().toString()),
+                processContextBuilder,
+                "Cannot configure shared LFS storage");
+        List<String> oids = new ArrayList<>();
+        processExecutor.visitStdout(processContextBuilder.command(listCommand).build(), line -> {
+            oids.add(line.strip().split("\\s+")[0]);
+            return true;
+        });
+        LfsObjectCache.Lease lease = lfsObjectCache
+                .fetch(oids, () -> processExecutor.execute(processContextBuilder.command(fetchCommand).build()));
+        // the working directory uses the objects until the task is done, outside any scope that is not known
+        getWorkdirScope(processContextBuilder).ifPresentOrElse(scope -> scope.hold(lease), lease::close);
     }
 
     boolean isLfsPresent(ProcessContext.Builder processContextBuilder) {
@@ -195,19 +643,246 @@ public class GitCommands {
         return Files.exists(gitattributesFilePath) && IOUtils.fileContainsString(gitattributesFilePath, LFS_PATTERN);
     }
 
+    /**
+     * Check whether LFS is used at the given ref, without the need of having a working tree (e.g. in a bare
+     * repository).
+     */
+    public boolean isLfsPresentAtRef(String ref, ProcessContext.Builder processContextBuilder) {
+        // missing .gitattributes is a valid state, hence do not report it as a warning (copy the builder, so that the
+        // caller's consumers stay untouched)
+        String gitattributes = processExecutor.stdout(
+                processContextBuilder.build()
+                        .toBuilder()
+                        .stderrConsumer(log::debug)
+                        .command(GitUtils.showFileAtRef(ref, GIT_ATTRIBUTES)));
+        return gitattributes.contains(LFS_PATTERN);
+    }
+
+    /**
+     * Get the size (in bytes) of the objects stored in the repository, both loose and packed ones.
+     */
+    public long getObjectStoreSize(ProcessContext.Builder processContextBuilder) {
+        long sizeInKiB = 0;
+        for (String line : getLinesStdoutOfGitCommand(processContextBuilder.command(GitUtils.countObjects()))) {
+            if (line.startsWith("size: ") || line.startsWith("size-pack: ")) {
+                sizeInKiB += Long.parseLong(line.substring(line.indexOf(' ') + 1).strip());
+            }
+        }
+        return sizeInKiB * 1024;
+    }
+
+    /**
+     * Apply git tuning profile (see {@link GitConfig.TuningConfig}) to the repository. It is expected to be called
+     * right after the repository is cloned, or initialized and fetched, i.e. before most of the index-heavy
+     * operations.
+     *
+     * @return the applied profile, never {@link GitTuningProfile#AUTO}
+     */
+    public GitTuningProfile applyTuningProfile(ProcessContext.Builder processContextBuilder) {
+        GitConfig.TuningConfig config = configUtils.getTuningConfig();
+        GitTuningProfile profile = config.profile();
+        if (profile == GitTuningProfile.AUTO) {
+            profile = chooseTuningProfile(config, processContextBuilder);
+        }
+
+        Map<String, String> settings = new LinkedHashMap<>();
+        if (profile == GitTuningProfile.STANDARD || profile == GitTuningProfile.LARGE) {
+            settings.putAll(STANDARD_TUNING_SETTINGS);
+        }
+        if (profile == GitTuningProfile.LARGE) {
+            settings.putAll(LARGE_TUNING_SETTINGS);
+        }
+        log.debug("Applying git tuning profile {}", profile);
+        if (!settings.isEmpty()) {
+            writeLocalConfig(settings, processContextBuilder.build().getWorkingDirectory(), profile);
+        }
+        // index.version affects only the index files written from scratch, the index of a clone has to be rewritten
+        if (settings.containsKey(INDEX_VERSION)
+                && countIndexEntries(processContextBuilder.build().getWorkingDirectory()) > 0) {
+            executeGitCommand(
+                    GitUtils.setIndexVersion(settings.get(INDEX_VERSION)),
+                    processContextBuilder,
+                    "Cannot rewrite the index in version " + settings.get(INDEX_VERSION));
+        }
+        return profile;
+    }
+
+    /**
+     * Write all the settings into the local config of the repository at once, instead of running {@code git config}
+     * per every setting.
+     */
+    private static void writeLocalConfig(Map<String, String> settings, Path workdir, GitTuningProfile profile) {
+        try (Repository repository = new FileRepositoryBuilder().findGitDir(workdir.toFile())
+                .setMustExist(true)
+                .build()) {
+            StoredConfig config = repository.getConfig();
+            settings.forEach((key, value) -> {
+                int sectionEnd = key.indexOf('.');
+                int nameStart = key.lastIndexOf('.');
+                String subsection = sectionEnd == nameStart ? null : key.substring(sectionEnd + 1, nameStart);
+                config.setString(key.substring(0, sectionEnd), subsection, key.substring(nameStart + 1), value);
+            });
+            config.save();
+        } catch (IOException | RuntimeException e) {
+            throw new GitException(String.format("Cannot apply git tuning profile %s", profile), e);
+        }
+    }
+
+    private GitTuningProfile chooseTuningProfile(
+            GitConfig.TuningConfig config,
+            ProcessContext.Builder processContextBuilder) {
+        long files = countIndexEntries(processContextBuilder.build().getWorkingDirectory());
+        long size = getObjectStoreSize(processContextBuilder);
+        boolean large = files >= config.largeRepositoryFiles() || size >= config.largeRepositorySize();
+        log.info(
+                "Repository has {} files and {} bytes of objects, considering it {}",
+                files,
+                size,
+                large ? "large" : "standard");
+        return large ? GitTuningProfile.LARGE : GitTuningProfile.STANDARD;
+    }
+
+    /**
+     * Number of entries of the index, as stored in its header (right after the signature and version), hence there is
+     * no need to list all of them. Bare repositories, and the ones without any index yet, have no entries.
+     */
+    static long countIndexEntries(Path workdir) {
+        Path index = workdir.resolve(".git").resolve("index");
+        if (!Files.isRegularFile(index)) {
+            return 0;
+        }
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(index))) {
+            input.skipNBytes(8);
+            return Integer.toUnsignedLong(input.readInt());
+        } catch (IOException e) {
+            log.debug("Cannot read number of entries of the index '{}'", index, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Check whether the repository is intact, i.e. all its refs are readable and all the objects reachable from them
+     * are present. Unlike the commands talking to a remote, it fails only when the repository itself is corrupt.
+     */
+    public boolean isRepositoryIntact(ProcessContext.Builder processContextBuilder) {
+        return processExecutor.execute(processContextBuilder.command(GitUtils.checkConnectivity()).build()) == 0;
+    }
+
+    /**
+     * Check whether the repository is shallow, i.e. its history is truncated (e.g. cloned by {@code --depth}).
+     */
+    public boolean isShallowRepository(ProcessContext.Builder processContextBuilder) {
+        return "true".equals(
+                processExecutor.stdout(processContextBuilder.command(GitUtils.isShallowRepository())).strip());
+    }
+
     public boolean doesTagExistLocally(String ref, ProcessContext.Builder processContextBuilder) {
-        return processExecutor.execute(processContextBuilder.command(GitUtils.doesTagExistLocally(ref)).build()) == 0;
+        return memoized(
+                LocalState.REFS,
+                "tag-exists",
+                ref,
+                processContextBuilder,
+                () -> refLookupBackend().doesTagExistLocally(ref, processContextBuilder));
     }
 
+    /**
+     * Check whether the remote advertises the tag.
+     *
+     * @throws GitException in case the refs of the remote cannot be listed, since the tag may exist there
+     */
     public boolean doesTagExistAtRemote(String remote, String ref, ProcessContext.Builder processContextBuilder) {
         log.debug("Checking whether tag '{}' exists at remote '{}'", ref, remote);
-        return processExecutor
-                .execute(processContextBuilder.command(GitUtils.doesTagExistAtRemote(remote, ref)).build()) == 0;
+        return getRemoteRefIndex(remote, processContextBuilder).hasTag(ref);
+    }
+
+    /**
+     * Get the branches and tags advertised by the remote. Inside the {@link WorkdirScope}, the snapshot taken by the
+     * first call is reused (a failed listing is not remembered).
+     *
+     * @throws GitException in case the refs of the remote cannot be listed, e.g. the remote is not reachable
+     */
+    public RemoteRefIndex getRemoteRefIndex(String remote, ProcessContext.Builder processContextBuilder) {
+        return getWorkdirScope(processContextBuilder)
+                .map(scope -> scope.getRemoteRefIndex(remote, r -> listRemoteRefs(r, processContextBuilder)))
+                .orElseGet(() -> listRemoteRefs(remote, processContextBuilder));
+    }
+
+    private Optional<RemoteRefIndex> tryGetRemoteRefIndex(
+            String remote,
+            ProcessContext.Builder processContextBuilder) {
+        try {
+            return Optional.of(getRemoteRefIndex(remote, processContextBuilder));
+        } catch (GitException ex) {
+            log.warn("Cannot list refs of remote '{}', considering the ref not to exist there", remote, ex);
+            return Optional.empty();
+        }
+    }
+
+    public RemoteRefIndex getLocalRefIndex(ProcessContext.Builder processContextBuilder) {
+        return memoized(
+                LocalState.REFS,
+                "local-refs",
+                "",
+                processContextBuilder,
+                () -> RemoteRefIndex.parse(
+                        getLinesStdoutOfGitCommand(
+                                processContextBuilder.command(GitUtils.listLocalBranchesAndTags()))));
+    }
+
+    private RemoteRefIndex listRemoteRefs(String remote, ProcessContext.Builder processContextBuilder) {
+        log.debug("Listing refs advertised by remote '{}'", remote);
+        List<String> lines = new ArrayList<>();
+        int exitCode = processExecutor.execute(
+                processContextBuilder.build()
+                        .toBuilder()
+                        .stdoutConsumer(lines::add)
+                        .command(GitUtils.lsRemoteBranchesAndTags(remote))
+                        .build());
+        if (exitCode != 0) {
+            throw new GitException(String.format("Cannot list refs of remote '%s'", remote));
+        }
+        return RemoteRefIndex.parse(lines);
+    }
+
+    /**
+     * List the local refs starting with the prefix.
+     *
+     * @param prefix prefix of the full names of the refs, e.g. {@code refs/tags/}
+     * @return full names of the refs mapped to the objects they point to, sorted by the names
+     */
+    public Map<String, String> listLocalRefs(String prefix, ProcessContext.Builder processContextBuilder) {
+        Map<String, String> refs = new LinkedHashMap<>();
+        for (String line : getLinesStdoutOfGitCommand(processContextBuilder.command(GitUtils.listLocalRefs(prefix)))) {
+            String[] objectAndRef = line.split("\t", 2);
+            if (objectAndRef.length == 2) {
+                refs.put(objectAndRef[1], objectAndRef[0]);
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Point the ref to the new value (creating the ref when it does not exist).
+     *
+     * @param ref full name of the ref
+     * @param newValue SHA of the object or a name resolving to it (e.g. another ref)
+     */
+    public void updateRef(String ref, String newValue, ProcessContext.Builder processContextBuilder) {
+        executeGitCommand(
+                GitUtils.updateRef(ref, newValue),
+                processContextBuilder,
+                String.format("Cannot update ref '%s' to '%s'", ref, newValue),
+                LocalState.REFS);
     }
 
     public boolean doesShaExists(String ref, ProcessContext.Builder processContextBuilder) {
         log.debug("Checking whether sha '{}' exists in the current tree", ref);
-        return processExecutor.execute(processContextBuilder.command(GitUtils.doesShaExists(ref)).build()) == 0;
+        return memoized(
+                LocalState.REFS,
+                "sha-exists",
+                ref,
+                processContextBuilder,
+                () -> refLookupBackend().doesShaExist(ref, processContextBuilder));
     }
 
     public static boolean isReferencePR(String ref) {
@@ -229,14 +904,33 @@ public class GitCommands {
         return doesReferenceExistAtRemote(DEFAULT_REMOTE_NAME, ref, processContextBuilder);
     }
 
+    /**
+     * Check whether the ref (tag, branch, commit or pull request) exists at the remote. In case the refs of the remote
+     * cannot be listed, only the commits and pull requests are checked.
+     */
     public boolean doesReferenceExistAtRemote(String remote, String ref, ProcessContext.Builder processContextBuilder) {
-        return doesTagExistAtRemote(remote, ref, processContextBuilder)
-                || doesBranchExistAtRemote(remote, ref, processContextBuilder)
+        return tryGetRemoteRefIndex(remote, processContextBuilder)
+                .map(index -> index.hasTag(ref) || index.hasBranch(ref))
+                .orElse(false)
                 || doesShaExists(ref, processContextBuilder)
                 || doesPRExistsAtRemote(remote, ref, processContextBuilder);
     }
 
     public boolean doesPRExistsAtRemote(String remote, String ref, ProcessContext.Builder processContextBuilder) {
+        if (!isReferencePR(ref)) {
+            return false;
+        }
+
+        // pull requests are not part of the RemoteRefIndex (not to list possibly thousands of them), but the result
+        // of the probe is remembered within the scope
+        return getWorkdirScope(processContextBuilder)
+                .map(
+                        scope -> scope
+                                .doesPullRequestExist(remote, ref, () -> probePR(remote, ref, processContextBuilder)))
+                .orElseGet(() -> probePR(remote, ref, processContextBuilder));
+    }
+
+    private boolean probePR(String remote, String ref, ProcessContext.Builder processContextBuilder) {
         log.debug("Checking whether PR '{}' exists at remote '{}'", ref, remote);
         try {
             fetchRef(remote, modifyPullRequestRefToBeFetchable(ref), false, true, processContextBuilder);
@@ -251,45 +945,249 @@ public class GitCommands {
     }
 
     public void push(String remote, String ref, boolean force, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
         executeGitCommand(
                 GitUtils.push(remote, ref, force),
                 processContextBuilder,
-                String.format("Cannot %spush reference '%s' to '%s'", force ? "force-" : "", ref, remote));
+                String.format("Cannot %spush reference '%s' to '%s'", force ? "force-" : "", ref, remote),
+                LocalState.REFS);
     }
 
     public void pushAll(String remote, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
         executeGitCommand(
                 GitUtils.pushAll(remote),
                 processContextBuilder,
-                String.format("Cannot push all to '%s'", remote));
+                String.format("Cannot push all to '%s'", remote),
+                LocalState.REFS);
     }
 
     public void pushTags(String remote, List<String> tags, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
         executeGitCommand(
                 GitUtils.pushTags(remote, tags),
                 processContextBuilder,
-                String.format("Cannot push to '%s' the following tags: %s", remote, tags));
+                String.format("Cannot push to '%s' the following tags: %s", remote, tags),
+                LocalState.REFS);
+    }
+
+    /**
+     * Push the given refs (under the same name) into the remote.<br/>
+     * The refs are split into chunks of {@link GitConfig.PushConfig#chunkSize()} refs, which are pushed by at most
+     * {@link GitConfig.PushConfig#parallelism()} pushes at once (on their own virtual threads, so that they never wait
+     * for the executor running the calling task). Every chunk is pushed atomically (unless the remote does not support
+     * it), and it is retried when its push fails transiently (see {@link #isTransientPushFailure(List)}). Once all the
+     * chunks are processed, the push fails in case any of the chunks could not be pushed.
+     *
+     * @param remote remote to push into
+     * @param refs full names of the refs, e.g. refs/tags/1.0.0
+     * @param processContextBuilder process context builder
+     */
+    public void pushRefs(String remote, List<String> refs, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
+        if (refs.isEmpty()) {
+            log.debug("No refs to push to '{}'", remote);
+            return;
+        }
+
+        GitConfig.PushConfig pushConfig = configUtils.getPushConfig();
+        int chunkSize = Math.max(1, pushConfig.chunkSize());
+        Queue<List<String>> chunks = new ConcurrentLinkedQueue<>(
+                IntStream.range(0, (refs.size() + chunkSize - 1) / chunkSize)
+                        .mapToObj(i -> refs.subList(i * chunkSize, Math.min(refs.size(), (i + 1) * chunkSize)))
+                        .toList());
+        int chunksCount = chunks.size();
+        userLogger.info("Pushing {} refs to '{}' in {} chunk(s)", refs.size(), remote, chunksCount);
+
+        ProcessContext processContext = processContextBuilder.build();
+        AtomicBoolean atomic = new AtomicBoolean(pushConfig.atomic());
+        List<List<String>> failedChunks = Collections.synchronizedList(new ArrayList<>());
+        Runnable worker = () -> {
+            List<String> chunk;
+            while ((chunk = chunks.poll()) != null) {
+                if (!pushChunk(remote, chunk, atomic, pushConfig.maxRetries(), processContext)) {
+                    failedChunks.add(chunk);
+                }
+            }
+        };
+
+        int workersCount = Math.min(pushConfig.parallelism(), chunksCount);
+        if (workersCount <= 1) {
+            worker.run();
+        } else {
+            Map<String, String> mdc = MDC.getCopyOfContextMap();
+            // the calling task blocks until the chunks are pushed, hence they must not compete with it for the threads
+            // of the managed executor
+            try (ExecutorService pushExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+                CompletableFuture.allOf(
+                        IntStream.range(0, workersCount)
+                                .mapToObj(i -> CompletableFuture.runAsync(() -> runWithMdc(mdc, worker), pushExecutor))
+                                .toArray(CompletableFuture[]::new))
+                        .join();
+            }
+        }
+
+        // pushing updates the remote-tracking refs
+        invalidateLocalQueries(processContextBuilder, LocalState.REFS);
+        if (!failedChunks.isEmpty()) {
+            throw new GitException(
+                    String.format(
+                            "Cannot push %d out of %d chunks of refs to '%s'",
+                            failedChunks.size(),
+                            chunksCount,
+                            remote));
+        }
+    }
+
+    /**
+     * Push the given refspecs into the remote by a single atomic push, i.e. either all the destination refs are updated
+     * at the remote, or none of them. Destination refs already pointing to the pushed objects are up-to-date for git,
+     * hence the push succeeds for them too. In case the remote does not support atomic push, the refspecs are pushed
+     * non-atomically (still by a single push).
+     *
+     * @param remote remote to push into
+     * @param refspecs explicit refspecs, e.g. refs/tags/1.0.0:refs/tags/1.0.0 or &lt;sha&gt;:refs/heads/branch
+     * @param processContextBuilder process context builder
+     */
+    public void pushAtomically(String remote, List<String> refspecs, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
+        String errorMessage = String.format("Cannot push to '%s' the following refspecs: %s", remote, refspecs);
+        ProcessContext processContext = processContextBuilder.build();
+        List<String> stderr = new ArrayList<>();
+        final int exitCode;
+        try {
+            exitCode = processExecutor.execute(
+                    processContext.toBuilder()
+                            .command(GitUtils.pushRefspecs(remote, refspecs, true))
+                            .stderrConsumer(processContext.getStderrConsumer().andThen(stderr::add))
+                            .build());
+        } finally {
+            invalidateLocalQueries(processContextBuilder, LocalState.REFS);
+        }
+
+        if (exitCode == 0) {
+            return;
+        }
+        if (stderr.stream().anyMatch(line -> line.contains(ATOMIC_PUSH_NOT_SUPPORTED))) {
+            userLogger.warn("Remote '{}' does not support atomic push, continuing with non-atomic push", remote);
+            executeGitCommand(
+                    GitUtils.pushRefspecs(remote, refspecs, false),
+                    processContextBuilder,
+                    errorMessage,
+                    LocalState.REFS);
+            return;
+        }
+        throw new GitException(errorMessage);
+    }
+
+    private boolean pushChunk(
+            String remote,
+            List<String> chunk,
+            AtomicBoolean atomic,
+            int maxRetries,
+            ProcessContext processContext) {
+        int attempt = 0;
+        while (attempt <= maxRetries) {
+            boolean atomicPush = atomic.get();
+            List<String> stderr = new ArrayList<>();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            int exitCode = processExecutor.execute(
+                    processContext.toBuilder()
+                            .command(GitUtils.pushRefs(remote, chunk, atomicPush))
+                            .stderrConsumer(processContext.getStderrConsumer().andThen(stderr::add))
+                            .build());
+            long durationNanos = sample.stop(pushChunkTimer(exitCode == 0, atomicPush));
+            log.debug("Push of a chunk of {} refs to '{}' took {} ms", chunk.size(), remote, durationNanos / 1_000_000);
+
+            if (exitCode == 0) {
+                return true;
+            }
+            if (atomicPush && stderr.stream().anyMatch(line -> line.contains(ATOMIC_PUSH_NOT_SUPPORTED))) {
+                // not a failure of the chunk itself, hence it is not counted as an attempt
+                userLogger.warn("Remote '{}' does not support atomic push, continuing with non-atomic push", remote);
+                atomic.set(false);
+                continue;
+            }
+
+            if (!isTransientPushFailure(stderr)) {
+                userLogger
+                        .warn("Push of a chunk of {} refs to '{}' was rejected, not retrying it", chunk.size(), remote);
+                return false;
+            }
+            attempt++;
+            userLogger.warn(
+                    "Push of a chunk of {} refs to '{}' failed (attempt {} out of {})",
+                    chunk.size(),
+                    remote,
+                    attempt,
+                    maxRetries + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the failed push is worth retrying, i.e. it failed on the transport (connection or protocol errors),
+     * or on a lock of a ref held by a concurrent push. Deterministic rejections (e.g. non-fast-forward, protected ref,
+     * declined by a hook) would fail the same way again.
+     */
+    static boolean isTransientPushFailure(List<String> stderr) {
+        return stderr.stream()
+                .map(line -> line.toLowerCase(Locale.ROOT))
+                .anyMatch(line -> TRANSIENT_PUSH_FAILURES.stream().anyMatch(line::contains));
+    }
+
+    private Timer pushChunkTimer(boolean success, boolean atomic) {
+        return Timer.builder("reqour.git.push.chunk")
+                .description("Duration of pushing a single chunk of refs")
+                .tag("outcome", success ? "success" : "failure")
+                .tag("atomic", String.valueOf(atomic))
+                .register(meterRegistry);
+    }
+
+    private static void runWithMdc(Map<String, String> mdc, Runnable runnable) {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        }
+        try {
+            runnable.run();
+        } finally {
+            MDC.clear();
+        }
     }
 
     public void pushAllTags(String remote, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
         executeGitCommand(
                 GitUtils.pushAllTags(remote),
                 processContextBuilder,
-                String.format("Cannot push tags to '%s'", remote));
+                String.format("Cannot push tags to '%s'", remote),
+                LocalState.REFS);
     }
 
     public void addRemote(String remote, String url, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
         executeGitCommand(
                 GitUtils.addRemote(remote, url),
                 processContextBuilder,
                 String.format("Cannot add new remote '%s' to '%s'", remote, url));
     }
 
+    public void setRemoteUrl(String remote, String url, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(remote, processContextBuilder);
+        executeGitCommand(
+                GitUtils.setRemoteUrl(remote, url),
+                processContextBuilder,
+                String.format("Unable to set URL of remote '%s' to '%s'", remote, url));
+    }
+
     public void renameRemote(String oldName, String newName, ProcessContext.Builder processContextBuilder) {
+        invalidateRemoteRefs(oldName, processContextBuilder);
+        invalidateRemoteRefs(newName, processContextBuilder);
         executeGitCommand(
                 GitUtils.renameRemote(oldName, newName),
                 processContextBuilder,
-                String.format("Unable to rename remote '%s' to '%s'", oldName, newName));
+                String.format("Unable to rename remote '%s' to '%s'", oldName, newName),
+                LocalState.REFS);
     }
 
     public String revParse(Path workdir) {
@@ -297,45 +1195,280 @@ public class GitCommands {
     }
 
     public String revParse(Path workdir, String ref) {
-        return getSingleValueResultOfGitCommand(
-                ProcessContext.withWorkdirAndIgnoringOutput(workdir).command(GitUtils.revParse(ref)));
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(workdir);
+        return memoized(
+                LocalState.REFS,
+                "rev-parse",
+                ref,
+                processContextBuilder,
+                () -> refLookupBackend().revParse(ref, processContextBuilder));
     }
 
     public void remove(String filename, boolean cached, ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.remove(filename, cached),
                 processContextBuilder,
-                String.format("Cannot delete the file '%s'", filename));
+                String.format("Cannot delete the file '%s'", filename),
+                LocalState.INDEX);
+    }
+
+    /**
+     * Delete all the files by as few git processes as the limit of the command line length allows (see
+     * {@link #chunkPaths(List, int)}).
+     */
+    public void remove(List<String> filenames, boolean cached, ProcessContext.Builder processContextBuilder) {
+        for (List<String> chunk : chunkPaths(filenames, MAX_PATHS_LENGTH)) {
+            executeGitCommand(
+                    GitUtils.remove(chunk, cached),
+                    processContextBuilder,
+                    String.format("Cannot delete the files %s", chunk),
+                    LocalState.INDEX);
+        }
     }
 
-    public void submoduleUpdateInit(ProcessContext.Builder processContextBuilder) {
-        executeGitCommand(GitUtils.submoduleUpdateInit(), processContextBuilder, "Cannot make submodule update init");
+    /**
+     * Split the paths into chunks, so that the paths of every chunk have at most the given length in total (a single
+     * longer path makes a chunk on its own). Keeps the command lines of batched commands below {@code ARG_MAX}.
+     */
+    static List<List<String>> chunkPaths(List<String> paths, int maxLength) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        long chunkLength = 0;
+        for (String path : paths) {
+            // the arguments are terminated by NUL
+            int length = path.length() + 1;
+            if (!chunk.isEmpty() && chunkLength + length > maxLength) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkLength = 0;
+            }
+            chunk.add(path);
+            chunkLength += length;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Initialize and check out the submodules (see {@link GitUtils#submoduleUpdateInit(int, boolean, Optional)}).
+     */
+    public void submoduleUpdateInit(
+            int jobs,
+            boolean shallow,
+            Optional<String> filter,
+            ProcessContext.Builder processContextBuilder) {
+        executeGitCommand(
+                GitUtils.submoduleUpdateInit(jobs, shallow, filter),
+                processContextBuilder,
+                "Cannot make submodule update init",
+                LocalState.INDEX);
+    }
+
+    /**
+     * Parse paths of the submodules defined in the given file (e.g. {@code .gitmodules}) by git itself, so that all
+     * the syntax of git config files (e.g. comments, quoting) is understood.
+     *
+     * @return paths of the submodules, in the order of their definitions
+     */
+    public List<String> getSubmodulePaths(Path submodulesFile, ProcessContext.Builder processContextBuilder) {
+        StringBuilder output = new StringBuilder();
+        ProcessContext processContext = processContextBuilder.build();
+        int exitCode = processExecutor.execute(
+                processContext.toBuilder()
+                        .command(GitUtils.listSubmodulePaths(submodulesFile.toAbsolutePath().toString()))
+                        .stdoutConsumer(line -> output.append(line).append('\n'))
+                        .build());
+        // git config exits with 1 when there is no submodule defined, the output is empty then
+        if (exitCode != 0 && exitCode != 1) {
+            throw new GitException(String.format("Cannot read paths of the submodules from '%s'", submodulesFile));
+        }
+        List<String> paths = new ArrayList<>();
+        for (String entry : output.toString().split("\0")) {
+            int separator = entry.indexOf('\n');
+            // the output ends by a line separator after the last entry
+            if (separator > 0) {
+                paths.add(entry.substring(separator + 1));
+            }
+        }
+        return paths;
     }
 
     public void createAnnotatedTag(String name, String message, ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.createAnnotatedTag(name, message),
                 processContextBuilder,
-                String.format("Unable to create annotated tag '%s'", name));
+                String.format("Unable to create annotated tag '%s'", name),
+                LocalState.REFS);
     }
 
     public void createLightweightTag(String name, ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.createLightweightTag(name),
                 processContextBuilder,
-                String.format("Cannot add tag '%s'", name));
+                String.format("Cannot add tag '%s'", name),
+                LocalState.REFS);
     }
 
     public List<String> listTags(ProcessContext.Builder processContextBuilder) {
-        return getLinesStdoutOfGitCommand(processContextBuilder.command(GitUtils.listTags()));
+        return memoized(
+                LocalState.REFS,
+                "tag",
+                "",
+                processContextBuilder,
+                () -> List.copyOf(refListingBackend().listTags(processContextBuilder)));
     }
 
     public List<String> listTagsReachableFromRef(String ref, ProcessContext.Builder processContextBuilder) {
-        return getLinesStdoutOfGitCommand(processContextBuilder.command(GitUtils.listTagsReachableFromReference(ref)));
+        return memoized(
+                LocalState.REFS,
+                "tags-reachable",
+                ref,
+                processContextBuilder,
+                () -> timedReachabilityQuery(
+                        "tags-reachable",
+                        processContextBuilder,
+                        () -> List.copyOf(
+                                getLinesStdoutOfGitCommand(
+                                        processContextBuilder
+                                                .command(GitUtils.listTagsReachableFromReference(ref))))));
+    }
+
+    /**
+     * Prepare the repository for the reachability queries (e.g.
+     * {@link #listTagsReachableFromRef(String, ProcessContext.Builder)}), i.e. write its commit-graph, and optionally
+     * its reachability bitmaps (see {@link GitConfig.ReachabilityIndexConfig}). Failures are only logged, since the
+     * queries work without them too.<br/>
+     * The commit-graph is split, i.e. only the commits added since it was written are written again. The bitmaps cover
+     * all the objects, hence they are written only when missing, or once enough packs were added since (see
+     * {@link GitConfig.ReachabilityIndexConfig#bitmapsRewritePackThreshold()}).
+     *
+     * @param bitmaps whether the bitmaps are maintained (they pay off for long-living repositories, e.g. mirrors)
+     * @param processContextBuilder process context builder
+     */
+    public void prepareReachabilityIndex(boolean bitmaps, ProcessContext.Builder processContextBuilder) {
+        GitConfig.ReachabilityIndexConfig config = configUtils.getReachabilityIndexConfig();
+        if (config.commitGraph()) {
+            writeReachabilityIndex("commit-graph", GitUtils.writeCommitGraph(), processContextBuilder);
+        }
+        if (bitmaps && config.bitmaps() && areBitmapsOutdated(
+                processContextBuilder.build().getWorkingDirectory(),
+                config.bitmapsRewritePackThreshold())) {
+            writeReachabilityIndex("bitmaps", GitUtils.writeMultiPackIndexWithBitmaps(), processContextBuilder);
+        }
+    }
+
+    /**
+     * Check whether the bitmaps of the repository (either bare, or with a working tree) are missing, or at least the
+     * given number of packs was added since they were written, i.e. the packs are newer than the multi-pack index.
+     */
+    static boolean areBitmapsOutdated(Path workdir, int packThreshold) {
+        if (workdir == null) {
+            return false;
+        }
+        for (Path objects : List.of(workdir.resolve(".git").resolve("objects"), workdir.resolve("objects"))) {
+            Path packDir = objects.resolve("pack");
+            if (!Files.isDirectory(packDir)) {
+                continue;
+            }
+            Path multiPackIndex = packDir.resolve("multi-pack-index");
+            if (!Files.exists(multiPackIndex)) {
+                return true;
+            }
+            try (Stream<Path> packs = Files.list(packDir)) {
+                FileTime written = Files.getLastModifiedTime(multiPackIndex);
+                long newPacks = packs.filter(pack -> pack.getFileName().toString().endsWith(".pack"))
+                        .filter(pack -> isModifiedAfter(pack, written))
+                        .count();
+                return newPacks >= packThreshold;
+            } catch (IOException e) {
+                log.debug("Cannot list packs of '{}', considering the bitmaps outdated", workdir, e);
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isModifiedAfter(Path file, FileTime time) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(time) > 0;
+        } catch (IOException e) {
+            // e.g. the pack was removed by a concurrent repack
+            return false;
+        }
+    }
+
+    private void writeReachabilityIndex(
+            String kind,
+            List<String> command,
+            ProcessContext.Builder processContextBuilder) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int exitCode = processExecutor
+                .execute(processContextBuilder.build().toBuilder().stderrConsumer(log::debug).command(command).build());
+        long durationNanos = sample.stop(
+                Timer.builder("reqour.git.reachability.prepare")
+                        .description("Duration of writing the structures for reachability queries")
+                        .tag("kind", kind)
+                        .tag("outcome", exitCode == 0 ? "success" : "failure")
+                        .register(meterRegistry));
+        if (exitCode == 0) {
+            log.debug("Writing {} took {} ms", kind, durationNanos / 1_000_000);
+        } else {
+            log.warn("Cannot write {}, reachability queries are going to be slower", kind);
+        }
+    }
+
+    /**
+     * Run the reachability query and record its duration, tagged by whether the repository has the commit-graph, so
+     * that the queries with and without it can be compared.
+     */
+    private <T> T timedReachabilityQuery(
+            String query,
+            ProcessContext.Builder processContextBuilder,
+            Supplier<T> runner) {
+        boolean commitGraph = hasCommitGraph(processContextBuilder.build().getWorkingDirectory());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return runner.get();
+        } finally {
+            long durationNanos = sample.stop(
+                    Timer.builder("reqour.git.reachability.query")
+                            .description("Duration of reachability queries")
+                            .tag("query", query)
+                            .tag("commit-graph", String.valueOf(commitGraph))
+                            .register(meterRegistry));
+            log.debug(
+                    "Reachability query '{}' took {} ms (commit-graph present: {})",
+                    query,
+                    durationNanos / 1_000_000,
+                    commitGraph);
+        }
+    }
+
+    /**
+     * Check whether the repository (either bare, or with a working tree) has the commit-graph, single or split one.
+     */
+    static boolean hasCommitGraph(Path workdir) {
+        if (workdir == null) {
+            return false;
+        }
+        for (Path objects : List.of(workdir.resolve(".git").resolve("objects"), workdir.resolve("objects"))) {
+            Path info = objects.resolve("info");
+            if (Files.exists(info.resolve("commit-graph")) || Files.exists(info.resolve("commit-graphs"))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public String getCommitByTag(String tagName, ProcessContext.Builder processContextBuilder) {
-        return getSingleValueResultOfGitCommand(processContextBuilder.command(GitUtils.getCommitByTag(tagName)));
+        return memoized(
+                LocalState.REFS,
+                "commit-by-tag",
+                tagName,
+                processContextBuilder,
+                () -> refLookupBackend().getCommitByTag(tagName, processContextBuilder));
     }
 
     public void fetchRef(
@@ -347,25 +1480,42 @@ public class GitCommands {
         executeGitCommand(
                 GitUtils.fetchRef(remote, ref, fetchShallowly, dryRun),
                 processContextBuilder,
-                String.format("Cannot fetch reference '%s'", ref));
+                String.format("Cannot fetch reference '%s'", ref),
+                LocalState.REFS);
+    }
+
+    public void fetchPrune(String remote, ProcessContext.Builder processContextBuilder) {
+        executeGitCommand(
+                GitUtils.fetchPrune(remote),
+                processContextBuilder,
+                String.format("Cannot fetch (with pruning) from remote '%s'", remote),
+                LocalState.REFS);
     }
 
     public void fetchTags(String remote, boolean shallow, ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.fetchTags(remote, shallow),
                 processContextBuilder,
-                String.format("Cannot fetch tags from remote '%s'", remote));
+                String.format("Cannot fetch tags from remote '%s'", remote),
+                LocalState.REFS);
     }
 
     public String writeTree(ProcessContext.Builder processContextBuilder) {
-        return getSingleValueResultOfGitCommand(processContextBuilder.command(GitUtils.writeTree()));
+        return memoized(
+                LocalState.INDEX,
+                "write-tree",
+                "",
+                processContextBuilder,
+                () -> queryBackend(configUtils.getGitBackendConfig().tree()).writeTree(processContextBuilder));
     }
 
     public void resetHard(ProcessContext.Builder processContextBuilder) {
         executeGitCommand(
                 GitUtils.resetHard(),
                 processContextBuilder,
-                "Cannot reset hard this repository");
+                "Cannot reset hard this repository",
+                LocalState.REFS,
+                LocalState.INDEX);
     }
 
     private static String modifyPullRequestRefToBeFetchable(String ref) {
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.config.GitConfig;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SSH connection multiplexing of a single task. Git commands talking to a remote run with {@code GIT_SSH_COMMAND},
+ * which makes the first SSH connection to a host the master connection (kept in the background), and lets the
+ * following connections to the same host reuse it, i.e. they skip the SSH handshake and authentication.<br/>
+ * <br/>
+ * {@code GIT_SSH_COMMAND} takes precedence over the SSH command configured otherwise, hence the command the git
+ * commands would use anyway (see {@link #resolveBaseCommand(Map, Supplier)}) is extended by the multiplexing options.
+ * <br/>
+ * <br/>
+ * The control sockets of the master connections live in the control directory of the task, and the master connections
+ * are closed together with the scope of the task. In case they are not (e.g. the process is killed), they exit on
+ * their own once they are idle for {@link GitConfig.SshMultiplexingConfig#persistSeconds()}.
+ */
+@Slf4j
+final class SshMultiplexing {
+
+    static final String GIT_SSH_COMMAND = "GIT_SSH_COMMAND";
+    static final String GIT_SSH = "GIT_SSH";
+    private static final Set<String> NETWORK_COMMANDS = Set
+            .of("clone", "fetch", "ls-remote", "push", "pull", "submodule", "lfs");
+    private static final Set<String> OPTIONS_WITH_VALUE = Set.of("-c", "-C");
+
+    private final Path controlDirectory;
+    private final Map<String, String> environment;
+
+    private SshMultiplexing(Path controlDirectory, String sshCommand) {
+        this.controlDirectory = controlDirectory;
+        this.environment = Map.of(GIT_SSH_COMMAND, sshCommand);
+    }
+
+    /**
+     * Create the control directory of the task and compose the SSH command using it.
+     *
+     * @param baseCommand SSH command extended by the multiplexing options (see
+     *        {@link #resolveBaseCommand(Map, Supplier)})
+     */
+    static SshMultiplexing open(GitConfig.SshMultiplexingConfig config, String baseCommand) throws IOException {
+        Files.createDirectories(config.controlDirectory());
+        // keep the path short, the path of the control socket has to fit into ~100 characters
+        Path controlDirectory = Files.createTempDirectory(config.controlDirectory(), "t");
+        String sshCommand = String.format(
+                "%s -o ControlMaster=auto -o 'ControlPath=%s/%%r@%%h:%%p' -o ControlPersist=%d",
+                baseCommand,
+                controlDirectory,
+                config.persistSeconds());
+        return new SshMultiplexing(controlDirectory, sshCommand);
+    }
+
+    /**
+     * Resolve the SSH command git would use, in the order of git's own precedence: {@code GIT_SSH_COMMAND} of the
+     * environment, {@code core.sshCommand} of the (global or system) git config, and plain {@code ssh}. In case only
+     * {@code GIT_SSH} is set, the command is not resolved, since the program does not necessarily accept OpenSSH
+     * options (e.g. plink), hence the connections are not going to be multiplexed.<br/>
+     * A {@code core.sshCommand} set in the config of a repository is overridden by the multiplexing.
+     *
+     * @param environment environment of the process
+     * @param configuredCommand value of {@code core.sshCommand}, or blank in case it is not set
+     * @return SSH command, or empty in case the connections cannot be multiplexed
+     */
+    static Optional<String> resolveBaseCommand(Map<String, String> environment, Supplier<String> configuredCommand) {
+        String environmentCommand = environment.get(GIT_SSH_COMMAND);
+        if (environmentCommand != null && !environmentCommand.isBlank()) {
+            return Optional.of(environmentCommand.strip());
+        }
+        String configured = configuredCommand.get();
+        if (configured != null && !configured.isBlank()) {
+            return Optional.of(configured.strip());
+        }
+        String program = environment.get(GIT_SSH);
+        if (program != null && !program.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.of("ssh");
+    }
+
+    Path getControlDirectory() {
+        return controlDirectory;
+    }
+
+    /**
+     * Add the SSH command into the environment of the process, in case it is a git command talking to a remote.
+     * Variables set explicitly by the caller take precedence.
+     */
+    ProcessContext apply(ProcessContext processContext) {
+        if (!isNetworkCommand(processContext.getCommand())) {
+            return processContext;
+        }
+        Map<String, String> extraEnvVariables = new HashMap<>(environment);
+        if (processContext.getExtraEnvVariables() != null) {
+            extraEnvVariables.putAll(processContext.getExtraEnvVariables());
+        }
+        return processContext.toBuilder().extraEnvVariables(extraEnvVariables).build();
+    }
+
+    /**
+     * Close all the master connections of the task and delete its control directory.
+     */
+    void close(ProcessExecutor processExecutor) {
+        List<Path> sockets;
+        try (Stream<Path> listed = Files.list(controlDirectory)) {
+            sockets = listed.toList();
+        } catch (IOException e) {
+            sockets = List.of();
+        }
+        log.debug("Closing {} SSH master connections of the task", sockets.size());
+        for (Path socket : sockets) {
+            // the host is not resolved when the control socket is given explicitly, it is required only syntactically
+            String host = socket.getFileName().toString().replaceFirst(":\\d+$", "");
+            int exitCode = processExecutor.execute(
+                    ProcessContext.withWorkdirAndIgnoringOutput(controlDirectory)
+                            .command(List.of("ssh", "-S", socket.toString(), "-O", "exit", host))
+                            .build());
+            if (exitCode != 0) {
+                log.warn("Cannot close SSH master connection '{}'", socket);
+            }
+        }
+        try {
+            FileUtils.deleteDirectory(controlDirectory.toFile());
+        } catch (IOException e) {
+            log.warn("Cannot delete SSH control directory '{}'", controlDirectory, e);
+        }
+    }
+
+    /**
+     * Check whether the command is a git command talking to a remote, e.g. {@code git -c key=value fetch origin}.
+     */
+    static boolean isNetworkCommand(List<String> command) {
+        if (command == null || command.isEmpty() || !"git".equals(command.get(0))) {
+            return false;
+        }
+        for (int i = 1; i < command.size(); i++) {
+            String argument = command.get(i);
+            if (OPTIONS_WITH_VALUE.contains(argument)) {
+                i++;
+            } else if (!argument.startsWith("-")) {
+                return NETWORK_COMMANDS.contains(argument);
+            }
+        }
+        return false;
+    }
+}
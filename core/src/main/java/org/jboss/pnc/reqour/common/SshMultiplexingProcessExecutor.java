@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.jboss.pnc.reqour.common.executor.process.InteractiveProcess;
+import org.jboss.pnc.reqour.common.executor.process.LineVisitor;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+/**
+ * {@link ProcessExecutor} running the git commands, which talk to a remote, with {@link SshMultiplexing} of the task
+ * working in the directory of the command. Processes outside any task scope are executed as they are.
+ */
+final class SshMultiplexingProcessExecutor implements ProcessExecutor {
+
+    private final ProcessExecutor delegate;
+    private final Function<Path, Optional<SshMultiplexing>> multiplexingLookup;
+
+    SshMultiplexingProcessExecutor(
+            ProcessExecutor delegate,
+            Function<Path, Optional<SshMultiplexing>> multiplexingLookup) {
+        this.delegate = delegate;
+        this.multiplexingLookup = multiplexingLookup;
+    }
+
+    @Override
+    public int execute(ProcessContext processContext) {
+        return delegate.execute(multiplexed(processContext));
+    }
+
+    @Override
+    public String stdout(ProcessContext.Builder processContextBuilder) {
+        return delegate.stdout(multiplexed(processContextBuilder.build()).toBuilder());
+    }
+
+    @Override
+    public int visitStdout(ProcessContext processContext, LineVisitor visitor) {
+        return delegate.visitStdout(multiplexed(processContext), visitor);
+    }
+
+    @Override
+    public InteractiveProcess start(ProcessContext processContext) {
+        return delegate.start(multiplexed(processContext));
+    }
+
+    private ProcessContext multiplexed(ProcessContext processContext) {
+        return lookup(processContext).map(multiplexing -> multiplexing.apply(processContext)).orElse(processContext);
+    }
+
+    private Optional<SshMultiplexing> lookup(ProcessContext processContext) {
+        Path workdir = processContext.getWorkingDirectory();
+        if (workdir == null) {
+            return Optional.empty();
+        }
+        return multiplexingLookup.apply(workdir.toAbsolutePath().normalize());
+    }
+}
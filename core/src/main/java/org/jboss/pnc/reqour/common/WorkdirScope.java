@@ -0,0 +1,184 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.jboss.pnc.reqour.model.RemoteRefIndex;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * State of the git work done by a single task within its working directory, e.g. snapshots of refs advertised by the
+ * remotes. The state lives until the scope is closed, which is expected to happen once the task is done.<br/>
+ * <br/>
+ * The scope also memoizes read-only queries of the local repository (e.g. rev-parse, tag existence), which are asked
+ * repeatedly within a task. Every query depends on a {@link LocalState}, and {@link GitCommands} invalidates the
+ * queries of the state, which is changed by the command it runs. Hence, the local repository is expected to be
+ * modified only through {@link GitCommands} while the scope is open.<br/>
+ * <br/>
+ * Git commands talking to remotes share SSH connections within the scope (see {@link SshMultiplexing}), when
+ * enabled. Resources the task holds until it is done (e.g. leases of shared LFS objects) are released once the scope
+ * is closed.<br/>
+ * <br/>
+ * Scopes are opened by {@link GitCommands#openWorkdirScope(Path)}.
+ */
+@Slf4j
+public final class WorkdirScope implements AutoCloseable {
+
+    private final Path workdir;
+    private final Consumer<WorkdirScope> onClose;
+    private final SshMultiplexing sshMultiplexing;
+    private final Map<String, RemoteRefIndex> remoteRefIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> pullRequests = new ConcurrentHashMap<>();
+    private final Map<LocalQueryKey, Object> localQueries = new ConcurrentHashMap<>();
+    private final AtomicInteger localQueryHits = new AtomicInteger();
+    private final AtomicInteger localQueryMisses = new AtomicInteger();
+    private final List<AutoCloseable> resources = new CopyOnWriteArrayList<>();
+    private long localStateGeneration;
+
+    WorkdirScope(Path workdir, SshMultiplexing sshMultiplexing, Consumer<WorkdirScope> onClose) {
+        this.workdir = workdir;
+        this.sshMultiplexing = sshMultiplexing;
+        this.onClose = onClose;
+    }
+
+    public Path getWorkdir() {
+        return workdir;
+    }
+
+    Optional<SshMultiplexing> getSshMultiplexing() {
+        return Optional.ofNullable(sshMultiplexing);
+    }
+
+    RemoteRefIndex getRemoteRefIndex(String remote, Function<String, RemoteRefIndex> loader) {
+        return remoteRefIndexes.computeIfAbsent(remote, loader);
+    }
+
+    boolean doesPullRequestExist(String remote, String ref, Supplier<Boolean> probe) {
+        return pullRequests.computeIfAbsent(pullRequestKey(remote, ref), k -> probe.get());
+    }
+
+    /**
+     * Forget everything known about the given remote, e.g. after pushing into it.
+     */
+    void invalidate(String remote) {
+        log.debug("Invalidating refs of remote '{}' known in the scope of '{}'", remote, workdir);
+        remoteRefIndexes.remove(remote);
+        pullRequests.keySet().removeIf(key -> key.startsWith(pullRequestKey(remote, "")));
+    }
+
+    /**
+     * Forget everything known about all the remotes, e.g. after (re-)cloning into the working directory.
+     */
+    void invalidateAll() {
+        log.debug("Invalidating refs of all remotes known in the scope of '{}'", workdir);
+        remoteRefIndexes.clear();
+        pullRequests.clear();
+    }
+
+    /**
+     * Answer the query of the local repository from the previous answer, or run it and remember the answer until the
+     * state the query depends on is invalidated. Failed queries are not remembered.
+     *
+     * @param dependsOn state of the local repository the answer depends on
+     * @param query name of the query
+     * @param argument argument of the query (e.g. the ref), or empty string if it has none
+     * @param runner runs the query, has to return non-null answer
+     */
+    @SuppressWarnings("unchecked")
+    <T> T memoize(LocalState dependsOn, String query, String argument, Supplier<T> runner) {
+        LocalQueryKey key = new LocalQueryKey(dependsOn, query, argument);
+        Object answer = localQueries.get(key);
+        if (answer != null) {
+            localQueryHits.incrementAndGet();
+            return (T) answer;
+        }
+
+        localQueryMisses.incrementAndGet();
+        long generation = getLocalStateGeneration();
+        T result = runner.get();
+        synchronized (this) {
+            // do not remember the answer, in case the state was changed while the query was running
+            if (generation == localStateGeneration) {
+                localQueries.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget answers of the local queries depending on any of the given states, e.g. after committing.
+     */
+    synchronized void invalidateLocal(LocalState... states) {
+        localStateGeneration++;
+        for (LocalState state : states) {
+            localQueries.keySet().removeIf(key -> key.dependsOn() == state);
+        }
+    }
+
+    /**
+     * Keep the resource until the scope is closed.
+     */
+    void hold(AutoCloseable resource) {
+        resources.add(resource);
+    }
+
+    int getLocalQueryHits() {
+        return localQueryHits.get();
+    }
+
+    int getLocalQueryMisses() {
+        return localQueryMisses.get();
+    }
+
+    private synchronized long getLocalStateGeneration() {
+        return localStateGeneration;
+    }
+
+    @Override
+    public void close() {
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.warn("Cannot release resource held in the scope of '{}'", workdir, e);
+            }
+        }
+        onClose.accept(this);
+    }
+
+    private static String pullRequestKey(String remote, String ref) {
+        return remote + '\0' + ref;
+    }
+
+    /**
+     * Part of the local repository, which answers of the local queries depend on.
+     */
+    enum LocalState {
+
+        /**
+         * Refs, HEAD and objects reachable from them.
+         */
+        REFS,
+
+        /**
+         * Index (staging area).
+         */
+        INDEX,
+    }
+
+    private record LocalQueryKey(LocalState dependsOn, String query, String argument) {
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of {@link GitQueryBackend}, which answers ref and object lookups from a long-living
+ * {@link GitBatchSession} of the working directory, i.e. by a single {@code git} process for all the lookups of a task.
+ * <br/>
+ * Sessions are kept only for the working directories enabled by {@link #enableSessions(Path)} (for the lifetime of a
+ * task), lookups in other directories, listings and writing the tree are served by {@link CliGitQueryBackend}. The same
+ * happens when the session is not able to answer (e.g. the directory is not a repository yet).<br/>
+ * Unlike {@code git show-ref}, branches and tags are looked up by their exact name, i.e. {@code foo} is not matched by
+ * {@code refs/heads/feature/foo}.
+ */
+@ApplicationScoped
+@Slf4j
+public class BatchGitQueryBackend implements GitQueryBackend {
+
+    private final ProcessExecutor processExecutor;
+    private final CliGitQueryBackend fallback;
+    private final ConcurrentMap<Path, SessionHolder> sessions = new ConcurrentHashMap<>();
+
+    @Inject
+    public BatchGitQueryBackend(ProcessExecutor processExecutor, CliGitQueryBackend fallback) {
+        this.processExecutor = processExecutor;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Keep a session for lookups in the working directory, until {@link #disableSessions(Path)}. The session is started
+     * with the first lookup.
+     */
+    public void enableSessions(Path workdir) {
+        sessions.putIfAbsent(key(workdir), new SessionHolder(workdir));
+    }
+
+    /**
+     * Close the current session of the working directory (if any), the next lookup starts a new one. Use when the
+     * repository in the directory is replaced, e.g. cloned into.
+     */
+    public void restartSession(Path workdir) {
+        Optional.ofNullable(sessions.get(key(workdir))).ifPresent(SessionHolder::close);
+    }
+
+    /**
+     * Close the session of the working directory and stop keeping one.
+     */
+    public void disableSessions(Path workdir) {
+        Optional.ofNullable(sessions.remove(key(workdir))).ifPresent(SessionHolder::close);
+    }
+
+    @PreDestroy
+    void closeAll() {
+        sessions.values().forEach(SessionHolder::close);
+        sessions.clear();
+    }
+
+    @Override
+    public String revParse(String ref, ProcessContext.Builder processContextBuilder) {
+        return lookup(
+                processContextBuilder,
+                session -> session.lookup(ref)
+                        .map(GitBatchSession.ObjectInfo::sha)
+                        .orElseThrow(() -> new GitException(String.format("Cannot resolve '%s'", ref))),
+                () -> fallback.revParse(ref, processContextBuilder));
+    }
+
+    @Override
+    public String getCommitByTag(String tagName, ProcessContext.Builder processContextBuilder) {
+        return lookup(
+                processContextBuilder,
+                session -> session.lookup(tagName + "^{commit}")
+                        .map(GitBatchSession.ObjectInfo::sha)
+                        .orElseThrow(
+                                () -> new GitException(
+                                        String.format("Cannot resolve commit of tag '%s'", tagName))),
+                () -> fallback.getCommitByTag(tagName, processContextBuilder));
+    }
+
+    @Override
+    public boolean doesShaExist(String ref, ProcessContext.Builder processContextBuilder) {
+        return lookup(
+                processContextBuilder,
+                session -> session.lookup(ref + "^{commit}").filter(GitBatchSession.ObjectInfo::isCommit).isPresent(),
+                () -> fallback.doesShaExist(ref, processContextBuilder));
+    }
+
+    @Override
+    public boolean doesBranchExistLocally(String branch, ProcessContext.Builder processContextBuilder) {
+        return lookup(
+                processContextBuilder,
+                session -> session.lookup(fullRefName("refs/heads/", branch)).isPresent(),
+                () -> fallback.doesBranchExistLocally(branch, processContextBuilder));
+    }
+
+    @Override
+    public boolean doesTagExistLocally(String tag, ProcessContext.Builder processContextBuilder) {
+        return lookup(
+                processContextBuilder,
+                session -> session.lookup(fullRefName("refs/tags/", tag)).isPresent(),
+                () -> fallback.doesTagExistLocally(tag, processContextBuilder));
+    }
+
+    @Override
+    public List<String> listBranches(ProcessContext.Builder processContextBuilder) {
+        return fallback.listBranches(processContextBuilder);
+    }
+
+    @Override
+    public List<String> listTags(ProcessContext.Builder processContextBuilder) {
+        return fallback.listTags(processContextBuilder);
+    }
+
+    @Override
+    public String writeTree(ProcessContext.Builder processContextBuilder) {
+        return fallback.writeTree(processContextBuilder);
+    }
+
+    private static String fullRefName(String prefix, String name) {
+        return name.startsWith("refs/") ? name : prefix + name;
+    }
+
+    private <T> T lookup(
+            ProcessContext.Builder processContextBuilder,
+            Function<GitBatchSession, T> query,
+            Supplier<T> fallbackQuery) {
+        Path workdir = processContextBuilder.build().getWorkingDirectory();
+        SessionHolder holder = workdir == null ? null : sessions.get(key(workdir));
+        if (holder == null) {
+            return fallbackQuery.get();
+        }
+
+        GitBatchSession session;
+        try {
+            session = holder.get();
+        } catch (RuntimeException e) {
+            log.debug("Unable to start batch session in '{}', falling back to git CLI", workdir, e);
+            return fallbackQuery.get();
+        }
+        try {
+            return query.apply(session);
+        } catch (GitException e) {
+            if (session.isUsable()) {
+                // the session answered, the object just does not exist
+                throw e;
+            }
+            log.debug("Batch session in '{}' is not usable, falling back to git CLI", workdir, e);
+            return fallbackQuery.get();
+        }
+    }
+
+    private static Path key(Path workdir) {
+        return workdir.toAbsolutePath().normalize();
+    }
+
+    private class SessionHolder {
+
+        private final Path workdir;
+        private GitBatchSession session;
+
+        SessionHolder(Path workdir) {
+            this.workdir = workdir;
+        }
+
+        synchronized GitBatchSession get() {
+            if (session == null || !session.isUsable()) {
+                close();
+                session = new GitBatchSession(processExecutor, workdir);
+            }
+            return session;
+        }
+
+        synchronized void close() {
+            if (session != null) {
+                session.close();
+                session = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.common.utils.GitUtils;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of {@link GitQueryBackend}, which forks a {@code git} process for every query.
+ */
+@ApplicationScoped
+@Slf4j
+public class CliGitQueryBackend implements GitQueryBackend {
+
+    private final ProcessExecutor processExecutor;
+
+    @Inject
+    public CliGitQueryBackend(ProcessExecutor processExecutor) {
+        this.processExecutor = processExecutor;
+    }
+
+    @Override
+    public String revParse(String ref, ProcessContext.Builder processContextBuilder) {
+        return getSingleValue(
+                GitUtils.revParse(ref),
+                processContextBuilder,
+                String.format("Cannot resolve '%s'", ref));
+    }
+
+    @Override
+    public String getCommitByTag(String tagName, ProcessContext.Builder processContextBuilder) {
+        return getSingleValue(
+                GitUtils.getCommitByTag(tagName),
+                processContextBuilder,
+                String.format("Cannot resolve commit of tag '%s'", tagName));
+    }
+
+    @Override
+    public boolean doesShaExist(String ref, ProcessContext.Builder processContextBuilder) {
+        return succeeds(GitUtils.doesShaExists(ref), processContextBuilder);
+    }
+
+    @Override
+    public boolean doesBranchExistLocally(String branch, ProcessContext.Builder processContextBuilder) {
+        return succeeds(GitUtils.doesBranchExistLocally(branch), processContextBuilder);
+    }
+
+    @Override
+    public boolean doesTagExistLocally(String tag, ProcessContext.Builder processContextBuilder) {
+        return succeeds(GitUtils.doesTagExistLocally(tag), processContextBuilder);
+    }
+
+    @Override
+    public List<String> listBranches(ProcessContext.Builder processContextBuilder) {
+        return getLines(GitUtils.branch(), processContextBuilder);
+    }
+
+    @Override
+    public List<String> listTags(ProcessContext.Builder processContextBuilder) {
+        return getLines(GitUtils.listTags(), processContextBuilder);
+    }
+
+    @Override
+    public String writeTree(ProcessContext.Builder processContextBuilder) {
+        return getSingleValue(GitUtils.writeTree(), processContextBuilder, "Cannot write tree of the index");
+    }
+
+    private boolean succeeds(List<String> command, ProcessContext.Builder processContextBuilder) {
+        return processExecutor.execute(processContextBuilder.build().toBuilder().command(command).build()) == 0;
+    }
+
+    private String getSingleValue(
+            List<String> command,
+            ProcessContext.Builder processContextBuilder,
+            String errorMessage) {
+        StringBuilder stdout = new StringBuilder();
+        int exitCode = processExecutor.execute(
+                processContextBuilder.build()
+                        .toBuilder()
+                        .stdoutConsumer(line -> stdout.append(line).append(System.lineSeparator()))
+                        .command(command)
+                        .build());
+        if (exitCode != 0) {
+            throw new GitException(errorMessage);
+        }
+        return stdout.toString().strip();
+    }
+
+    // the builder is copied, so that the command of the caller's builder is not replaced
+    private List<String> getLines(List<String> command, ProcessContext.Builder processContextBuilder) {
+        List<String> lines = new ArrayList<>();
+        processExecutor.visitStdout(processContextBuilder.build().toBuilder().command(command).build(), line -> {
+            lines.add(line);
+            return true;
+        });
+        return lines;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.common.executor.process.InteractiveProcess;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Long-living {@code git cat-file --batch-check} process of a single repository, which answers what the given object
+ * names resolve to. Every lookup writes a single name and reads its answer, which the process writes (and flushes)
+ * as soon as the name is read, so the pipes never hold more than a line.<br/>
+ * The process re-reads refs and packs on every lookup, hence it sees refs and objects created after it was started.
+ */
+@Slf4j
+final class GitBatchSession implements AutoCloseable {
+
+    private static final Pattern OBJECT_LINE = Pattern.compile("^([0-9a-f]{40,64}) (\\S+) \\d+$");
+
+    private final Path workdir;
+    private final InteractiveProcess process;
+    private boolean broken;
+
+    GitBatchSession(ProcessExecutor processExecutor, Path workdir) {
+        this.workdir = workdir;
+        this.process = processExecutor.start(
+                ProcessContext.withWorkdirAndIgnoringOutput(workdir)
+                        .command(List.of("git", "cat-file", "--batch-check"))
+                        .build());
+    }
+
+    /**
+     * Resolve the object name (anything {@code git rev-parse} accepts, e.g. {@code refs/tags/1.0^{commit}}).
+     *
+     * @return the object, or empty in case the name does not resolve to a single object
+     * @throws GitException in case the process does not answer (e.g. it died)
+     */
+    synchronized Optional<ObjectInfo> lookup(String name) {
+        if (broken) {
+            throw new GitException("Batch session of " + workdir + " is not usable anymore");
+        }
+        try {
+            process.writeLine(sanitize(name));
+            process.flush();
+            return parse(process.readLine());
+        } catch (RuntimeException e) {
+            broken = true;
+            throw e instanceof GitException ? e : new GitException("Batch session of " + workdir + " failed", e);
+        }
+    }
+
+    boolean isUsable() {
+        return !broken && process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        broken = true;
+        process.close();
+    }
+
+    /**
+     * Line of the protocol is the whole name, hence names with line breaks are replaced by a name, which never exists.
+     */
+    private static String sanitize(String name) {
+        return name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0 || name.isBlank() ? "^{missing}" : name;
+    }
+
+    /**
+     * Parse {@code <oid> <type> <size>}, or {@code <name> missing}, resp. {@code <name> ambiguous}.
+     */
+    private Optional<ObjectInfo> parse(String line) {
+        if (line == null) {
+            throw new GitException("Batch session of " + workdir + " ended unexpectedly");
+        }
+        Matcher matcher = OBJECT_LINE.matcher(line);
+        if (matcher.matches()) {
+            return Optional.of(new ObjectInfo(matcher.group(1), matcher.group(2)));
+        }
+        log.debug("Batch session of {} answered: {}", workdir, line);
+        return Optional.empty();
+    }
+
+    record ObjectInfo(String sha, String type) {
+
+        boolean isCommit() {
+            return "commit".equals(type);
+        }
+    }
+}
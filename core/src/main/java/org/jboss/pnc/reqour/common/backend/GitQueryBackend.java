@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import java.util.List;
+
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+/**
+ * Backend serving read-only queries of the local repository in the working directory of the given process context.
+ * Network and mutating operations are not part of the backend, they always use the git CLI.
+ */
+public interface GitQueryBackend {
+
+    /**
+     * Resolve the ref into the SHA of the object it points to.
+     *
+     * @throws GitException in case the ref cannot be resolved
+     */
+    String revParse(String ref, ProcessContext.Builder processContextBuilder);
+
+    /**
+     * Resolve the tag into the SHA of the commit it points to.
+     *
+     * @throws GitException in case the tag cannot be resolved
+     */
+    String getCommitByTag(String tagName, ProcessContext.Builder processContextBuilder);
+
+    boolean doesShaExist(String ref, ProcessContext.Builder processContextBuilder);
+
+    boolean doesBranchExistLocally(String branch, ProcessContext.Builder processContextBuilder);
+
+    boolean doesTagExistLocally(String tag, ProcessContext.Builder processContextBuilder);
+
+    /**
+     * List local and remote-tracking branches, in the format of {@code git branch -a}.
+     */
+    List<String> listBranches(ProcessContext.Builder processContextBuilder);
+
+    List<String> listTags(ProcessContext.Builder processContextBuilder);
+
+    /**
+     * Write the tree of the current index.
+     *
+     * @return SHA of the tree
+     */
+    String writeTree(ProcessContext.Builder processContextBuilder);
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.jgit.errors.AmbiguousObjectException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of {@link GitQueryBackend}, which serves the queries in process by JGit, i.e. without forking any
+ * {@code git} process.<br/>
+ * In case JGit is not able to read the repository (e.g. it uses an extension JGit does not support), the query falls
+ * back to {@link CliGitQueryBackend}.
+ */
+@ApplicationScoped
+@Slf4j
+public class JGitQueryBackend implements GitQueryBackend {
+
+    private final CliGitQueryBackend fallback;
+
+    @Inject
+    public JGitQueryBackend(CliGitQueryBackend fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String revParse(String ref, ProcessContext.Builder processContextBuilder) {
+        return query(processContextBuilder, repository -> {
+            ObjectId objectId = repository.resolve(ref);
+            if (objectId == null) {
+                throw new GitException(String.format("Cannot resolve '%s'", ref));
+            }
+            return objectId.name();
+        }, () -> fallback.revParse(ref, processContextBuilder));
+    }
+
+    @Override
+    public String getCommitByTag(String tagName, ProcessContext.Builder processContextBuilder) {
+        return query(processContextBuilder, repository -> {
+            ObjectId commit = repository.resolve(tagName + "^{commit}");
+            if (commit == null) {
+                throw new GitException(String.format("Cannot resolve commit of tag '%s'", tagName));
+            }
+            return commit.name();
+        }, () -> fallback.getCommitByTag(tagName, processContextBuilder));
+    }
+
+    @Override
+    public boolean doesShaExist(String ref, ProcessContext.Builder processContextBuilder) {
+        return query(processContextBuilder, repository -> {
+            try {
+                return repository.resolve(ref + "^{commit}") != null;
+            } catch (AmbiguousObjectException | IncorrectObjectTypeException | RevisionSyntaxException e) {
+                return false;
+            }
+        }, () -> fallback.doesShaExist(ref, processContextBuilder));
+    }
+
+    @Override
+    public boolean doesBranchExistLocally(String branch, ProcessContext.Builder processContextBuilder) {
+        return query(
+                processContextBuilder,
+                repository -> hasRefMatching(repository, Constants.R_HEADS, branch),
+                () -> fallback.doesBranchExistLocally(branch, processContextBuilder));
+    }
+
+    @Override
+    public boolean doesTagExistLocally(String tag, ProcessContext.Builder processContextBuilder) {
+        return query(
+                processContextBuilder,
+                repository -> hasRefMatching(repository, Constants.R_TAGS, tag),
+                () -> fallback.doesTagExistLocally(tag, processContextBuilder));
+    }
+
+    @Override
+    public List<String> listBranches(ProcessContext.Builder processContextBuilder) {
+        return query(processContextBuilder, repository -> {
+            List<String> branches = new ArrayList<>();
+            String head = repository.getFullBranch();
+            if (head != null && !head.startsWith(Constants.R_REFS)) {
+                branches.add(String.format("* (HEAD detached at %s)", head.substring(0, 7)));
+            }
+            for (Ref ref : sorted(repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS))) {
+                branches.add((ref.getName().equals(head) ? "* " : "  ") + Repository.shortenRefName(ref.getName()));
+            }
+            for (Ref ref : sorted(repository.getRefDatabase().getRefsByPrefix(Constants.R_REMOTES))) {
+                String name = "remotes/" + ref.getName().substring(Constants.R_REMOTES.length());
+                if (ref.isSymbolic()) {
+                    name += " -> " + Repository.shortenRefName(ref.getTarget().getName());
+                }
+                branches.add("  " + name);
+            }
+            return branches;
+        }, () -> fallback.listBranches(processContextBuilder));
+    }
+
+    @Override
+    public List<String> listTags(ProcessContext.Builder processContextBuilder) {
+        return query(
+                processContextBuilder,
+                repository -> sorted(repository.getRefDatabase().getRefsByPrefix(Constants.R_TAGS)).stream()
+                        .map(ref -> ref.getName().substring(Constants.R_TAGS.length()))
+                        .toList(),
+                () -> fallback.listTags(processContextBuilder));
+    }
+
+    @Override
+    public String writeTree(ProcessContext.Builder processContextBuilder) {
+        return query(processContextBuilder, repository -> {
+            try (ObjectInserter inserter = repository.newObjectInserter()) {
+                ObjectId tree = repository.readDirCache().writeTree(inserter);
+                inserter.flush();
+                return tree.name();
+            }
+        }, () -> fallback.writeTree(processContextBuilder));
+    }
+
+    /**
+     * Same matching as {@code git show-ref}, i.e. the pattern matches the ref when it is the whole name of the ref, or
+     * its tail (which starts right after a slash).
+     */
+    private static boolean hasRefMatching(Repository repository, String prefix, String pattern) throws IOException {
+        return repository.getRefDatabase()
+                .getRefsByPrefix(prefix)
+                .stream()
+                .map(Ref::getName)
+                .anyMatch(name -> name.equals(pattern) || name.endsWith("/" + pattern));
+    }
+
+    private static List<Ref> sorted(List<Ref> refs) {
+        return refs.stream().sorted(Comparator.comparing(Ref::getName)).toList();
+    }
+
+    private <T> T query(
+            ProcessContext.Builder processContextBuilder,
+            RepositoryQuery<T> query,
+            Supplier<T> fallbackQuery) {
+        Path workdir = processContextBuilder.build().getWorkingDirectory();
+        try (Repository repository = new FileRepositoryBuilder().findGitDir(workdir.toFile())
+                .setMustExist(true)
+                .build()) {
+            return query.run(repository);
+        } catch (GitException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.debug("JGit is not able to serve the query in '{}', falling back to git CLI", workdir, e);
+            return fallbackQuery.get();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RepositoryQuery<T> {
+
+        T run(Repository repository) throws IOException;
+    }
+}
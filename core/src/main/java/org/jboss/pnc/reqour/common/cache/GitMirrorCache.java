@@ -0,0 +1,332 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.cache;
+
+import static org.jboss.pnc.reqour.common.utils.GitUtils.DEFAULT_REMOTE_NAME;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.pnc.reqour.common.GitCommands;
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.config.GitConfig;
+import org.jboss.pnc.reqour.config.ReqourCoreConfig;
+import org.jboss.pnc.reqour.model.ProcessContext;
+import org.jboss.pnc.reqour.runtime.UserLogger;
+import org.slf4j.Logger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Disk-backed cache of bare mirrors of origin repositories, keyed by the normalized origin URL.<br/>
+ * <br/>
+ * A cached mirror is refreshed by an incremental {@code git fetch --prune} instead of being cloned again. Every mirror
+ * is guarded by its own read-write lock: refreshing takes the write lock, while the work served from the mirror holds
+ * the read lock, so that concurrent tasks can share one mirror safely.<br/>
+ * <br/>
+ * The size of every mirror is measured once it is created or refreshed (i.e. while it is not used), and kept in memory.
+ * Once the overall size of the cache exceeds {@link GitConfig.MirrorCacheConfig#maxSize()}, the least recently used
+ * mirrors (which are not in use) are evicted in the background.
+ */
+@ApplicationScoped
+@Slf4j
+public class GitMirrorCache {
+
+    private static final String LAST_ACCESS_MARKER = "reqour-last-access";
+    private static final Pattern SCHEME = Pattern.compile("^([A-Za-z][A-Za-z0-9+.-]*)://");
+    private static final Pattern PORT = Pattern.compile(":(\\d*)$");
+    private static final Pattern USER_INFO = Pattern.compile("^([^@/:]*)(:[^@/]*)?@");
+    private static final Map<String, String> DEFAULT_PORTS = Map.of(
+            "ssh",
+            "22",
+            "git+ssh",
+            "22",
+            "ssh+git",
+            "22",
+            "git",
+            "9418",
+            "http",
+            "80",
+            "https",
+            "443");
+
+    private final GitConfig.MirrorCacheConfig config;
+    private final GitCommands gitCommands;
+    private final Logger userLogger;
+    private final ConcurrentMap<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> sizes = new ConcurrentHashMap<>();
+    private final AtomicBoolean sizesLoaded = new AtomicBoolean();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    @Inject
+    public GitMirrorCache(ReqourCoreConfig config, GitCommands gitCommands, @UserLogger Logger userLogger) {
+        this.config = config.git().mirrorCache();
+        this.gitCommands = gitCommands;
+        this.userLogger = userLogger;
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Make sure the mirror of the given origin is present and up-to-date, and run the given action with it.<br/>
+     * The mirror must not be modified by the action, since it can be used by other tasks at the same time.
+     *
+     * @param url URL of the origin repository
+     * @param action action using the path of the bare mirror
+     * @return result of the action
+     * @param <T> result type
+     */
+    public <T> T withMirror(String url, Function<Path, T> action) {
+        String key = cacheKey(url);
+        Path mirrorDir = config.directory().resolve(key);
+        ReadWriteLock lock = locks.computeIfAbsent(key, k -> new ReentrantReadWriteLock());
+
+        lock.writeLock().lock();
+        try {
+            try {
+                refreshMirror(url, mirrorDir);
+            } finally {
+                sizes.put(key, sizeOf(mirrorDir));
+            }
+            // downgrade the lock, so that other tasks can use the refreshed mirror as well
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            markAccess(mirrorDir);
+            return action.apply(mirrorDir);
+        } finally {
+            lock.readLock().unlock();
+            scheduleEvictionIfNeeded();
+        }
+    }
+
+    private void refreshMirror(String url, Path mirrorDir) {
+        if (Files.exists(mirrorDir.resolve("HEAD"))) {
+            userLogger.info("Refreshing cached mirror of '{}' at '{}'", url, mirrorDir);
+            ProcessContext.Builder processContextBuilder = ProcessContext
+                    .withWorkdirAndConsumers(mirrorDir, userLogger::info, userLogger::warn);
+            try {
+                gitCommands.setRemoteUrl(DEFAULT_REMOTE_NAME, url, processContextBuilder);
+                gitCommands.fetchPrune(DEFAULT_REMOTE_NAME, processContextBuilder);
+                gitCommands.prepareReachabilityIndex(true, processContextBuilder);
+                return;
+            } catch (GitException ex) {
+                // e.g. a network failure, re-creating the intact mirror would only turn it into a full clone
+                if (gitCommands.isRepositoryIntact(processContextBuilder)) {
+                    throw ex;
+                }
+                log.warn("Cached mirror at '{}' is corrupt, re-creating it", mirrorDir, ex);
+                deleteMirror(mirrorDir);
+            }
+        }
+
+        userLogger.info("Creating cached mirror of '{}' at '{}'", url, mirrorDir);
+        try {
+            Files.createDirectories(mirrorDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create directory for the cached mirror " + mirrorDir, e);
+        }
+        ProcessContext.Builder processContextBuilder = ProcessContext
+                .withWorkdirAndConsumers(mirrorDir, userLogger::info, userLogger::warn);
+        try {
+            gitCommands.cloneBareMirror(url, processContextBuilder);
+        } catch (GitException ex) {
+            // do not leave half-cloned mirror behind
+            deleteMirror(mirrorDir);
+            throw ex;
+        }
+        // clones of the mirror share its objects, together with the commit-graph and bitmaps
+        gitCommands.prepareReachabilityIndex(true, processContextBuilder);
+    }
+
+    /**
+     * Overall size of the cache, as measured when the mirrors were last created or refreshed. The mirrors created by
+     * previous runs are measured once, on the first use of the cache.
+     */
+    long totalSize() {
+        if (sizesLoaded.compareAndSet(false, true)) {
+            for (Path mirror : listMirrors()) {
+                sizes.putIfAbsent(mirror.getFileName().toString(), sizeOf(mirror));
+            }
+        }
+        return sizes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private void scheduleEvictionIfNeeded() {
+        if (totalSize() <= config.maxSize() || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("mirror-cache-eviction").start(() -> {
+            try {
+                evictIfNeeded();
+            } finally {
+                evicting.set(false);
+            }
+        });
+    }
+
+    void evictIfNeeded() {
+        long totalSize = totalSize();
+        if (totalSize <= config.maxSize()) {
+            return;
+        }
+
+        log.info("Mirror cache has {} bytes, which exceeds the limit of {} bytes", totalSize, config.maxSize());
+        List<Path> leastRecentlyUsedFirst = listMirrors().stream()
+                .sorted(Comparator.comparing(GitMirrorCache::lastAccess))
+                .toList();
+        for (Path mirror : leastRecentlyUsedFirst) {
+            if (totalSize <= config.maxSize()) {
+                break;
+            }
+
+            String key = mirror.getFileName().toString();
+            ReadWriteLock lock = locks.computeIfAbsent(key, k -> new ReentrantReadWriteLock());
+            if (!lock.writeLock().tryLock()) {
+                log.debug("Mirror '{}' is in use, skipping its eviction", mirror);
+                continue;
+            }
+            try {
+                Long size = sizes.remove(key);
+                deleteMirror(mirror);
+                if (size != null) {
+                    totalSize -= size;
+                }
+                log.info("Evicted cached mirror '{}' ({} bytes)", mirror, size);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private List<Path> listMirrors() {
+        if (Files.notExists(config.directory())) {
+            return List.of();
+        }
+        try (Stream<Path> dirs = Files.list(config.directory())) {
+            return dirs.filter(Files::isDirectory).toList();
+        } catch (IOException e) {
+            log.warn("Unable to list cached mirrors in '{}'", config.directory(), e);
+            return List.of();
+        }
+    }
+
+    private static void markAccess(Path mirrorDir) {
+        try {
+            FileUtils.touch(mirrorDir.resolve(LAST_ACCESS_MARKER).toFile());
+        } catch (IOException e) {
+            log.warn("Unable to mark the access of the cached mirror '{}'", mirrorDir, e);
+        }
+    }
+
+    private static FileTime lastAccess(Path mirrorDir) {
+        try {
+            return Files.getLastModifiedTime(mirrorDir.resolve(LAST_ACCESS_MARKER));
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long sizeOf(Path mirrorDir) {
+        try {
+            return FileUtils.sizeOfDirectory(mirrorDir.toFile());
+        } catch (RuntimeException e) {
+            // the mirror might have been deleted concurrently
+            return 0;
+        }
+    }
+
+    private static void deleteMirror(Path mirrorDir) {
+        try {
+            FileUtils.deleteDirectory(mirrorDir.toFile());
+        } catch (IOException e) {
+            log.warn("Unable to delete cached mirror '{}'", mirrorDir, e);
+        }
+    }
+
+    static String cacheKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalizeUrl(url).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Normalize the URL, so that different notations of the same repository (e.g. with or without the '.git' suffix,
+     * scp-like vs. ssh) share the same mirror. The port is kept only when it is not the default one of the scheme,
+     * since e.g. {@code ssh://host:22/path} and {@code host:path} are the same repository.<br/>
+     * The username is kept, so that requests with different credentials do not share a mirror, and hence none of them
+     * is served refs it cannot fetch itself. The password (e.g. a token) is dropped, so that e.g. rotating the token
+     * does not create a new mirror. Every use of the mirror fetches it with the URL of the request first, hence the
+     * password is checked then.
+     */
+    static String normalizeUrl(String url) {
+        String stripped = url.strip();
+        Matcher schemeMatcher = SCHEME.matcher(stripped);
+        String scheme = schemeMatcher.find() ? schemeMatcher.group(1).toLowerCase(Locale.ROOT) : null;
+        String normalized = stripped.substring(scheme == null ? 0 : schemeMatcher.end());
+        Matcher userInfoMatcher = USER_INFO.matcher(normalized);
+        String user = "";
+        if (userInfoMatcher.find()) {
+            user = userInfoMatcher.group(1) + "@";
+            normalized = normalized.substring(userInfoMatcher.end());
+        }
+
+        // in the scp-like notation, the colon separates the path, in the URL notation it separates the port
+        int hostEnd = scheme == null ? indexOfFirst(normalized, ':', '/') : indexOfFirst(normalized, '/');
+        String host = normalized.substring(0, hostEnd).toLowerCase(Locale.ROOT);
+        Matcher portMatcher = PORT.matcher(host);
+        if (scheme != null && portMatcher.find()
+                && (portMatcher.group(1).isEmpty() || portMatcher.group(1).equals(DEFAULT_PORTS.get(scheme)))) {
+            host = host.substring(0, portMatcher.start());
+        }
+        String path = normalized.substring(hostEnd).replaceFirst("^[:/]+", "").replaceFirst("/+$", "");
+        if (path.endsWith(".git")) {
+            path = path.substring(0, path.length() - ".git".length());
+        }
+        return user + host + "/" + path;
+    }
+
+    private static int indexOfFirst(String text, char... chars) {
+        for (int i = 0; i < text.length(); i++) {
+            for (char c : chars) {
+                if (text.charAt(i) == c) {
+                    return i;
+                }
+            }
+        }
+        return text.length();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.pnc.reqour.config.GitConfig;
+import org.jboss.pnc.reqour.config.ReqourCoreConfig;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared storage of LFS objects (used as {@code lfs.storage} of the repositories), so that an LFS object is downloaded
+ * only once, no matter how many tasks need it.<br/>
+ * <br/>
+ * Git LFS stores the objects by their OID (SHA-256 of the content), hence the storage is deduplicated by its nature.
+ * Objects needed by a fetch are leased (reference counted) until the returned {@link Lease} is closed, and marked as
+ * recently used. Once the storage exceeds {@link GitConfig.LfsConfig#maxStorageSize()}, the least recently used objects
+ * which are not leased are evicted in the background. The size of the storage is kept in memory, so that the storage
+ * is walked only by the eviction itself.
+ */
+@ApplicationScoped
+@Slf4j
+public class LfsObjectCache {
+
+    private static final Pattern OID_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+    private final GitConfig.LfsConfig config;
+    private final Counter bytesFromCache;
+    private final Counter bytesFromNetwork;
+    private final ConcurrentMap<String, Integer> leases = new ConcurrentHashMap<>();
+    private final AtomicLong storageSize = new AtomicLong(-1);
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    @Inject
+    public LfsObjectCache(ReqourCoreConfig config, MeterRegistry meterRegistry) {
+        this.config = config.git().lfs();
+        this.bytesFromCache = Counter.builder("reqour.git.lfs.bytes")
+                .description("Bytes of LFS objects needed by the fetches")
+                .baseUnit("bytes")
+                .tag("source", "cache")
+                .register(meterRegistry);
+        this.bytesFromNetwork = Counter.builder("reqour.git.lfs.bytes")
+                .description("Bytes of LFS objects needed by the fetches")
+                .baseUnit("bytes")
+                .tag("source", "network")
+                .register(meterRegistry);
+    }
+
+    public Optional<Path> getStorage() {
+        return config.storage();
+    }
+
+    public int getConcurrentTransfers() {
+        return config.concurrentTransfers();
+    }
+
+    public int getRecentCommitsDays() {
+        return config.recentCommitsDays();
+    }
+
+    /**
+     * Run the LFS fetch against the shared storage, and account which of the needed objects were already present. The
+     * needed objects are not evicted until the returned lease is closed, which is expected once the task does not need
+     * them anymore (e.g. once its working directory is deleted).
+     *
+     * @param oids OIDs of the LFS objects the fetch needs
+     * @param fetch the fetch itself
+     * @return lease of the needed objects
+     */
+    public Lease fetch(List<String> oids, Runnable fetch) {
+        Path storage = getStorage()
+                .orElseThrow(() -> new IllegalStateException("Shared storage of LFS objects is not configured"));
+        List<String> validOids = oids.stream().filter(oid -> OID_PATTERN.matcher(oid).matches()).distinct().toList();
+
+        // lease the objects before looking at them, so that they cannot be evicted from under the fetch
+        Lease lease = new Lease(validOids);
+        Map<String, Long> cached = new HashMap<>();
+        validOids.forEach(oid -> {
+            Path object = objectPath(storage, oid);
+            if (Files.exists(object)) {
+                cached.put(oid, sizeOf(object));
+            }
+        });
+
+        try {
+            fetch.run();
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+
+        long cachedBytes = 0;
+        long downloadedBytes = 0;
+        FileTime now = FileTime.from(Instant.now());
+        for (String oid : validOids) {
+            Path object = objectPath(storage, oid);
+            if (cached.containsKey(oid)) {
+                cachedBytes += cached.get(oid);
+            } else if (Files.exists(object)) {
+                downloadedBytes += sizeOf(object);
+            }
+            markAccess(object, now);
+        }
+        bytesFromCache.increment(cachedBytes);
+        bytesFromNetwork.increment(downloadedBytes);
+        log.info(
+                "LFS objects needed: {} ({} bytes served from the cache, {} bytes downloaded)",
+                oids.size(),
+                cachedBytes,
+                downloadedBytes);
+
+        if (storageSize.get() >= 0) {
+            storageSize.addAndGet(downloadedBytes);
+        }
+        scheduleEvictionIfNeeded(storage);
+        return lease;
+    }
+
+    /**
+     * Git LFS stores the object with the OID 'abcdef...' as 'objects/ab/cd/abcdef...'.
+     */
+    static Path objectPath(Path storage, String oid) {
+        return storage.resolve("objects").resolve(oid.substring(0, 2)).resolve(oid.substring(2, 4)).resolve(oid);
+    }
+
+    private void scheduleEvictionIfNeeded(Path storage) {
+        long knownSize = storageSize.get();
+        // the size of the storage is not known until the first eviction measures it
+        if (knownSize >= 0 && knownSize <= config.maxStorageSize()) {
+            return;
+        }
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("lfs-cache-eviction").start(() -> {
+            try {
+                evictIfNeeded(storage);
+            } finally {
+                evicting.set(false);
+            }
+        });
+    }
+
+    void evictIfNeeded(Path storage) {
+        Path objectsDir = storage.resolve("objects");
+        if (Files.notExists(objectsDir)) {
+            storageSize.set(0);
+            return;
+        }
+
+        List<Path> objects;
+        try (Stream<Path> files = Files.walk(objectsDir)) {
+            objects = files.filter(Files::isRegularFile).toList();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to list LFS objects in '{}'", objectsDir, e);
+            return;
+        }
+
+        long totalSize = objects.stream().mapToLong(LfsObjectCache::sizeOf).sum();
+        if (totalSize <= config.maxStorageSize()) {
+            storageSize.set(totalSize);
+            return;
+        }
+
+        log.info("LFS storage has {} bytes, which exceeds the limit of {} bytes", totalSize, config.maxStorageSize());
+        List<Path> leastRecentlyUsedFirst = objects.stream()
+                .sorted(Comparator.comparing(LfsObjectCache::lastAccess))
+                .toList();
+        for (Path object : leastRecentlyUsedFirst) {
+            if (totalSize <= config.maxStorageSize()) {
+                break;
+            }
+            totalSize -= evictUnlessLeased(object);
+        }
+        storageSize.set(totalSize);
+    }
+
+    /**
+     * Delete the object unless it is leased. Leasing and eviction of the same object are mutually exclusive.
+     *
+     * @return size of the deleted object, or 0 if it was not deleted
+     */
+    private long evictUnlessLeased(Path object) {
+        long[] evicted = { 0 };
+        leases.compute(object.getFileName().toString(), (oid, count) -> {
+            if (count != null) {
+                log.debug("LFS object '{}' is in use, skipping its eviction", oid);
+                return count;
+            }
+            long size = sizeOf(object);
+            try {
+                Files.deleteIfExists(object);
+                evicted[0] = size;
+            } catch (IOException e) {
+                log.warn("Unable to evict LFS object '{}'", object, e);
+            }
+            return null;
+        });
+        return evicted[0];
+    }
+
+    int countLeases(String oid) {
+        return leases.getOrDefault(oid, 0);
+    }
+
+    private static void markAccess(Path object, FileTime time) {
+        try {
+            if (Files.exists(object)) {
+                Files.setLastModifiedTime(object, time);
+            }
+        } catch (IOException e) {
+            log.debug("Unable to mark the access of LFS object '{}'", object, e);
+        }
+    }
+
+    private static FileTime lastAccess(Path object) {
+        try {
+            return Files.getLastModifiedTime(object);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long sizeOf(Path object) {
+        try {
+            return Files.size(object);
+        } catch (IOException e) {
+            // the object might have been evicted concurrently
+            return 0;
+        }
+    }
+
+    /**
+     * Lease of LFS objects, which protects them from the eviction until it is closed.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final List<String> oids;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(List<String> oids) {
+            this.oids = oids;
+            oids.forEach(oid -> leases.merge(oid, 1, Integer::sum));
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                oids.forEach(oid -> leases.computeIfPresent(oid, (k, count) -> count > 1 ? count - 1 : null));
+            }
+        }
+    }
+}
@@ -9,4 +9,8 @@ public class GitException extends RuntimeException {
     public GitException(String message) {
         super(message);
     }
+
+    public GitException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
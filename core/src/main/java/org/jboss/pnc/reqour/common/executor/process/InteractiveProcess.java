@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.executor.process;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Long-running process, which is driven line by line through its STDIN and STDOUT (e.g. {@code git cat-file --batch}).
+ * STDERR is streamed into the STDERR consumer of the process context the process was started with.<br/>
+ * The process is not thread-safe, callers have to synchronize the request-response exchanges themselves.
+ */
+@Slf4j
+public final class InteractiveProcess implements AutoCloseable {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final Process process;
+    private final BufferedWriter stdin;
+    private final BufferedReader stdout;
+    private final Thread stderrPump;
+
+    InteractiveProcess(Process process, Thread stderrPump) {
+        this.process = process;
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        this.stderrPump = stderrPump;
+    }
+
+    /**
+     * Write the line into STDIN of the process. The line is buffered until {@link #flush()}.
+     */
+    public void writeLine(String line) {
+        try {
+            stdin.write(line);
+            stdin.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write into the process", e);
+        }
+    }
+
+    public void flush() {
+        try {
+            stdin.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write into the process", e);
+        }
+    }
+
+    /**
+     * Read the next line of STDOUT of the process, blocking until it is available.
+     *
+     * @return the line, or null in case the process closed its STDOUT (e.g. it died)
+     */
+    public String readLine() {
+        try {
+            return stdout.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read from the process", e);
+        }
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Close STDIN of the process (which makes well-behaved processes exit), and wait for the process to exit. In case
+     * it does not exit in time, it is destroyed.
+     */
+    @Override
+    public void close() {
+        try {
+            stdin.close();
+        } catch (IOException e) {
+            log.debug("Unable to close the input of the process", e);
+        }
+        try {
+            if (!process.waitFor(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Process {} did not exit in time, destroying it", process.pid());
+                process.destroyForcibly();
+            }
+            stderrPump.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        try {
+            stdout.close();
+        } catch (IOException e) {
+            log.debug("Unable to close the output of the process", e);
+        }
+    }
+}
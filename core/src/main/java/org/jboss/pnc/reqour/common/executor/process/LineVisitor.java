@@ -0,0 +1,21 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.executor.process;
+
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+/**
+ * Visitor of the lines of the process output, see {@link ProcessExecutor#visitStdout(ProcessContext, LineVisitor)}.
+ */
+@FunctionalInterface
+public interface LineVisitor {
+
+    /**
+     * Visit the next line of the output.
+     *
+     * @return true in order to continue with the next line, false in order to stop reading (and terminate the process)
+     */
+    boolean visit(String line);
+}
@@ -11,6 +11,11 @@ import org.jboss.pnc.reqour.model.ProcessContext;
  */
 public interface ProcessExecutor {
 
+    /**
+     * Exit code returned by {@link #visitStdout(ProcessContext, LineVisitor)} in case the visitor stopped the reading.
+     */
+    int STOPPED_BY_VISITOR = -1;
+
     /**
      * Execute the process as defined by {@link ProcessContext}. Also, do the following additional things: <br/>
      * - stream the STDOUT into {@link ProcessContext#getStdoutConsumer()} <br/>
@@ -31,4 +36,27 @@ public interface ProcessExecutor {
      * @return STDOUT of the process
      */
     String stdout(ProcessContext.Builder processContextBuilder);
+
+    /**
+     * Analogical to {@link ProcessExecutor#execute(ProcessContext)}. However, the STDOUT is handed to the visitor line
+     * by line, as the process produces it, instead of {@link ProcessContext#getStdoutConsumer()}. Once the visitor
+     * returns false, no more lines are read and the process is terminated.<br/>
+     * Unlike {@link #stdout(ProcessContext.Builder)}, the output is never held in memory as a whole, hence this is the
+     * way to scan long outputs (e.g. one line per tag of the repository).
+     *
+     * @param processContext context of the process to be run
+     * @param visitor visitor of the STDOUT lines, called on the calling thread
+     * @return exit code of the process, or {@link #STOPPED_BY_VISITOR} in case the visitor stopped the reading
+     */
+    int visitStdout(ProcessContext processContext, LineVisitor visitor);
+
+    /**
+     * Start the long-running process as defined by {@link ProcessContext}, which is then driven through its STDIN and
+     * STDOUT by the caller. STDERR is streamed into {@link ProcessContext#getStderrConsumer()}, the STDOUT consumer is
+     * not used.
+     *
+     * @param processContext context of the process to be started
+     * @return the started process, which has to be closed by the caller
+     */
+    InteractiveProcess start(ProcessContext processContext);
 }
@@ -4,12 +4,20 @@
  */
 package org.jboss.pnc.reqour.common.executor.process;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -18,8 +26,8 @@ import org.jboss.pnc.reqour.common.utils.IOUtils;
 import org.jboss.pnc.reqour.model.ProcessContext;
 import org.jboss.pnc.reqour.runtime.UserLogger;
 import org.slf4j.Logger;
+import org.slf4j.MDC;
 
-import io.smallrye.common.process.ProcessBuilder;
 import lombok.extern.slf4j.Slf4j;
 
 @ApplicationScoped
@@ -36,45 +44,20 @@ public class ProcessExecutorImpl implements ProcessExecutor {
 
     @Override
     public int execute(ProcessContext processContext) {
-        if (Files.notExists(processContext.getWorkingDirectory())) {
-            throw new IllegalArgumentException(
-                    "Directory at the path " + processContext.getWorkingDirectory() + " does not exist");
-        }
-        if (!Files.isDirectory(processContext.getWorkingDirectory())) {
-            throw new IllegalArgumentException(processContext.getWorkingDirectory() + " is not a directory");
-        }
-
-        final var holder = new ExitCodeHolder();
-        final List<String> commandArgs = processContext.getCommand().subList(1, processContext.getCommand().size());
-        final var processBuilder = ProcessBuilder.newBuilder(processContext.getCommand().getFirst())
-                .arguments(commandArgs)
-                .directory(processContext.getWorkingDirectory())
-                .environment(Optional.ofNullable(processContext.getExtraEnvVariables()).orElse(Collections.emptyMap()))
-                .exitCodeChecker(x -> {
-                    holder.setExitCode(x);
-                    // process is allowed to exit with any status code, it's being checked at higher levels
-                    // e.g. whether specific processes are allowed to exit with non-zero status codes
-                    return true;
-                });
-
         String loggedProcessContext = logProcessContext(
                 processContext.getCommand(),
                 processContext.getWorkingDirectory(),
                 processContext.getExtraEnvVariables());
         userLogger.info("Executing {}", loggedProcessContext);
+        final Process process = startProcess(processContext, loggedProcessContext);
 
-        // Configure consumers for stdout and stderr
-        processBuilder.output().consumeLinesWith(MAX_LINE_LENGTH, processContext.getStdoutConsumer()::accept);
-        processBuilder.error().consumeLinesWith(MAX_LINE_LENGTH, processContext.getStderrConsumer()::accept);
+        // Pump stdout and stderr into the consumers on virtual threads, since they spend all their time blocked on I/O
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        Thread stdoutPump = pumpLines(process.getInputStream(), processContext.getStdoutConsumer(), mdc);
+        Thread stderrPump = pumpLines(process.getErrorStream(), processContext.getStderrConsumer(), mdc);
+        closeQuietly(process.getOutputStream());
 
-        // Run with configured consumers
-        processBuilder.run();
-        int exitCode = holder.getExitCode();
-        log.debug(
-                "Command with process context {} terminated with the exit code: {}",
-                loggedProcessContext,
-                exitCode);
-        return exitCode;
+        return waitFor(process, loggedProcessContext, stdoutPump, stderrPump);
     }
 
     @Override
@@ -89,6 +72,170 @@ public class ProcessExecutorImpl implements ProcessExecutor {
         return sb.toString();
     }
 
+    @Override
+    public int visitStdout(ProcessContext processContext, LineVisitor visitor) {
+        String loggedProcessContext = logProcessContext(
+                processContext.getCommand(),
+                processContext.getWorkingDirectory(),
+                processContext.getExtraEnvVariables());
+        userLogger.info("Executing {}", loggedProcessContext);
+        final Process process = startProcess(processContext, loggedProcessContext);
+
+        Thread stderrPump = pumpLines(
+                process.getErrorStream(),
+                processContext.getStderrConsumer(),
+                MDC.getCopyOfContextMap());
+        closeQuietly(process.getOutputStream());
+
+        final boolean completed;
+        try {
+            completed = readLines(process.getInputStream(), visitor);
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw new UncheckedIOException("Unable to read the output of " + loggedProcessContext, e);
+        } catch (RuntimeException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        if (!completed) {
+            log.debug("Visitor stopped reading the output of {}, terminating the process", loggedProcessContext);
+            process.destroy();
+        }
+
+        int exitCode = waitFor(process, loggedProcessContext, stderrPump);
+        return completed ? exitCode : STOPPED_BY_VISITOR;
+    }
+
+    @Override
+    public InteractiveProcess start(ProcessContext processContext) {
+        String loggedProcessContext = logProcessContext(
+                processContext.getCommand(),
+                processContext.getWorkingDirectory(),
+                processContext.getExtraEnvVariables());
+        log.debug("Starting interactive {}", loggedProcessContext);
+        final Process process = startProcess(processContext, loggedProcessContext);
+
+        Thread stderrPump = pumpLines(
+                process.getErrorStream(),
+                processContext.getStderrConsumer(),
+                MDC.getCopyOfContextMap());
+        return new InteractiveProcess(process, stderrPump);
+    }
+
+    // process is allowed to exit with any status code, it's being checked at higher levels
+    // e.g. whether specific processes are allowed to exit with non-zero status codes
+    private static int waitFor(Process process, String loggedProcessContext, Thread... pumps) {
+        final int exitCode;
+        try {
+            exitCode = process.waitFor();
+            for (Thread pump : pumps) {
+                pump.join();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + loggedProcessContext, e);
+        }
+        log.debug(
+                "Command with process context {} terminated with the exit code: {}",
+                loggedProcessContext,
+                exitCode);
+        return exitCode;
+    }
+
+    private static Process startProcess(ProcessContext processContext, String loggedProcessContext) {
+        if (Files.notExists(processContext.getWorkingDirectory())) {
+            throw new IllegalArgumentException(
+                    "Directory at the path " + processContext.getWorkingDirectory() + " does not exist");
+        }
+        if (!Files.isDirectory(processContext.getWorkingDirectory())) {
+            throw new IllegalArgumentException(processContext.getWorkingDirectory() + " is not a directory");
+        }
+
+        final var processBuilder = new ProcessBuilder(processContext.getCommand())
+                .directory(processContext.getWorkingDirectory().toFile());
+        processBuilder.environment()
+                .putAll(Optional.ofNullable(processContext.getExtraEnvVariables()).orElse(Collections.emptyMap()));
+
+        try {
+            return processBuilder.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to start " + loggedProcessContext, e);
+        }
+    }
+
+    /**
+     * Read the stream line by line (lines longer than {@link #MAX_LINE_LENGTH} are truncated), and hand the lines to
+     * the consumer, until the end of the stream. The stream is read on a new virtual thread, with the given MDC.
+     */
+    static Thread pumpLines(InputStream stream, Consumer<String> consumer, Map<String, String> mdc) {
+        return Thread.ofVirtual().name("reqour-process-pump").start(() -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                readLines(stream, line -> {
+                    acceptLine(consumer, line);
+                    return true;
+                });
+            } catch (IOException e) {
+                log.warn("Unable to read the output of the process", e);
+            } finally {
+                MDC.clear();
+            }
+        });
+    }
+
+    /**
+     * Read the stream line by line (lines longer than {@link #MAX_LINE_LENGTH} are truncated), and hand the lines to
+     * the visitor, until the end of the stream or until the visitor stops the reading. The stream is closed afterward.
+     *
+     * @return false in case the visitor stopped the reading
+     */
+    private static boolean readLines(InputStream stream, LineVisitor visitor) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charset.defaultCharset()))) {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c == '\n') {
+                    if (!visitor.visit(takeLine(line))) {
+                        return false;
+                    }
+                } else if (line.length() < MAX_LINE_LENGTH) {
+                    line.append((char) c);
+                }
+            }
+            return line.isEmpty() || visitor.visit(takeLine(line));
+        }
+    }
+
+    private static String takeLine(StringBuilder line) {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        String result = line.toString();
+        line.setLength(0);
+        return result;
+    }
+
+    private static void acceptLine(Consumer<String> consumer, String line) {
+        try {
+            consumer.accept(line);
+        } catch (RuntimeException e) {
+            // keep draining the stream, otherwise the process could block on a full pipe
+            log.warn("Consumer of the process output failed", e);
+        }
+    }
+
+    private static void closeQuietly(OutputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.debug("Unable to close the input of the process", e);
+        }
+    }
+
     static String logProcessContext(
             List<String> command,
             Path workingDirectory,
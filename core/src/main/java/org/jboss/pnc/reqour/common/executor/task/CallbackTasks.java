@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.executor.task;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.jboss.pnc.api.dto.Request;
+import org.slf4j.MDC;
+
+/**
+ * Helpers for {@link TaskExecutor} implementations, which run the tasks on their own threads.
+ */
+final class CallbackTasks {
+
+    private CallbackTasks() {
+    }
+
+    /**
+     * Create the runnable, which runs the task synchronously and sends the callback with its result (or with the
+     * result of the error handler in case the task failed).
+     */
+    static <T, R> Runnable of(
+            Request callbackRequest,
+            T request,
+            Function<T, R> syncExecutor,
+            BiFunction<T, Throwable, R> errorHandler,
+            BiConsumer<Request, R> callbackSender) {
+        return () -> {
+            R result;
+            try {
+                result = syncExecutor.apply(request);
+            } catch (Throwable t) {
+                // error handlers expect the cause wrapped, the same way as when the task runs as a completion stage
+                result = errorHandler.apply(request, new CompletionException(t));
+            }
+            callbackSender.accept(callbackRequest, result);
+        };
+    }
+
+    /**
+     * Run the runnable with the given MDC, which was captured on the submitting thread. MDC of the current thread (e.g.
+     * of the task which ran on it before) is never used.
+     */
+    static void runWithMdc(Map<String, String> mdc, Runnable runnable) {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        } else {
+            MDC.clear();
+        }
+        try {
+            runnable.run();
+        } finally {
+            MDC.clear();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.executor.task;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
+import org.jboss.pnc.api.dto.Request;
+import org.jboss.pnc.reqour.common.exceptions.TaskRejectedException;
+import org.jboss.pnc.reqour.config.ConfigConstants;
+import org.jboss.pnc.reqour.config.ReqourCoreConfig;
+import org.jboss.pnc.reqour.config.TaskExecutorConfig;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
+import org.slf4j.MDC;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.arc.lookup.LookupIfProperty;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of {@link TaskExecutor}, which schedules the tasks in lanes, one per {@link TaskType}. Every lane has
+ * its own concurrency limit and a bounded queue of waiting tasks, which are started by their {@link TaskPriority} (and
+ * in the order of their submission within the same priority). Once the queue of a lane is full, further tasks of that
+ * type are rejected with {@link TaskRejectedException}.<br/>
+ * <br/>
+ * The tasks themselves run on container's {@link ManagedExecutor}, or on virtual threads when
+ * {@link TaskExecutorConfig#virtualThreads()} is enabled (lane concurrency can be raised considerably then, since the
+ * tasks spend most of their time blocked on git processes and HTTP calls). Queued tasks are started from the thread of
+ * the task which has just finished, hence the thread context (as well as MDC) of every task is captured once it is
+ * submitted, and applied when it runs.<br/>
+ * <br/>
+ * A task which is only going to wait for another task (e.g. a clone attached to an identical running one) releases
+ * its slot in the lane by {@link #releaseLaneSlot()}, so that it does not count against the concurrency limit.
+ */
+@ApplicationScoped
+@LookupIfProperty(
+        name = ConfigConstants.TASK_SCHEDULING_ENABLED,
+        stringValue = ConfigConstants.TRUE,
+        lookupIfMissing = true)
+@Slf4j
+public class SchedulingTaskExecutor implements TaskExecutor {
+
+    private static final ThreadLocal<Runnable> CURRENT_LANE_SLOT = new ThreadLocal<>();
+
+    private final Executor carrier;
+    private final ThreadContext threadContext;
+    private final ExecutorService virtualThreadExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Map<TaskType, Lane> lanes = new EnumMap<>(TaskType.class);
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Inject
+    public SchedulingTaskExecutor(
+            ManagedExecutor executor,
+            ThreadContext threadContext,
+            ReqourCoreConfig config,
+            MeterRegistry meterRegistry) {
+        TaskExecutorConfig taskExecutorConfig = config.taskExecutor();
+        if (taskExecutorConfig.virtualThreads()) {
+            this.virtualThreadExecutor = VirtualThreadTaskExecutor.newVirtualThreadExecutor();
+            this.carrier = virtualThreadExecutor;
+        } else {
+            this.virtualThreadExecutor = null;
+            this.carrier = executor;
+        }
+        this.threadContext = threadContext;
+        this.meterRegistry = meterRegistry;
+        lanes.put(TaskType.CLONE, new Lane(TaskType.CLONE, taskExecutorConfig.cloneLane()));
+        lanes.put(
+                TaskType.SCM_REPOSITORY_CREATION,
+                new Lane(TaskType.SCM_REPOSITORY_CREATION, taskExecutorConfig.scmCreationLane()));
+    }
+
+    @Override
+    public <T, R> void executeAsync(
+            TaskType type,
+            TaskPriority priority,
+            Request callbackRequest,
+            T request,
+            Function<T, R> syncExecutor,
+            BiFunction<T, Throwable, R> errorHandler,
+            BiConsumer<Request, R> callbackSender) {
+        Runnable task = threadContext.contextualRunnable(
+                CallbackTasks.of(callbackRequest, request, syncExecutor, errorHandler, callbackSender));
+        lanes.get(type)
+                .submit(
+                        new QueuedTask(
+                                priority,
+                                sequence.getAndIncrement(),
+                                System.nanoTime(),
+                                MDC.getCopyOfContextMap(),
+                                task));
+    }
+
+    /**
+     * Release the slot of the current task in its lane, i.e. the task does not count against the concurrency limit of
+     * the lane anymore, and another queued task can start. Meant for tasks which are only going to wait (e.g. for an
+     * identical task to finish). Has no effect outside of a task run by this executor, or once the slot is released.
+     */
+    public static void releaseLaneSlot() {
+        Runnable release = CURRENT_LANE_SLOT.get();
+        if (release != null) {
+            release.run();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+
+    int getQueued(TaskType type) {
+        return lanes.get(type).getQueued();
+    }
+
+    int getRunning(TaskType type) {
+        return lanes.get(type).getRunning();
+    }
+
+    private record QueuedTask(
+            TaskPriority priority,
+            long sequence,
+            long enqueuedAt,
+            Map<String, String> mdc,
+            Runnable task) {
+
+        static final Comparator<QueuedTask> ORDER = Comparator.comparing(QueuedTask::priority)
+                .thenComparingLong(QueuedTask::sequence);
+    }
+
+    private class Lane {
+
+        private final TaskType type;
+        private final int concurrency;
+        private final int queueCapacity;
+        private final PriorityQueue<QueuedTask> queue = new PriorityQueue<>(QueuedTask.ORDER);
+        private final Counter rejectedTasks;
+        private int running;
+
+        Lane(TaskType type, TaskExecutorConfig.LaneConfig config) {
+            this.type = type;
+            this.concurrency = config.concurrency();
+            this.queueCapacity = config.queueCapacity();
+            String lane = laneTag();
+            Gauge.builder("reqour.tasks.queued", this, Lane::getQueued)
+                    .description("Tasks waiting in the lane to be started")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            Gauge.builder("reqour.tasks.running", this, Lane::getRunning)
+                    .description("Tasks of the lane currently running")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            this.rejectedTasks = Counter.builder("reqour.tasks.rejected")
+                    .description("Tasks rejected since the queue of the lane was full")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+        }
+
+        synchronized void submit(QueuedTask task) {
+            if (queue.size() >= queueCapacity) {
+                rejectedTasks.increment();
+                throw new TaskRejectedException(
+                        String.format(
+                                "Too many %s tasks are waiting (%d), try again later",
+                                laneTag(),
+                                queue.size()));
+            }
+
+            queue.add(task);
+            log.debug("Task queued in lane {} (queued: {}, running: {})", laneTag(), queue.size(), running);
+            dispatch();
+        }
+
+        synchronized int getQueued() {
+            return queue.size();
+        }
+
+        synchronized int getRunning() {
+            return running;
+        }
+
+        private synchronized void dispatch() {
+            while (running < concurrency && !queue.isEmpty()) {
+                QueuedTask task = queue.poll();
+                running++;
+                try {
+                    carrier.execute(() -> run(task));
+                } catch (RejectedExecutionException e) {
+                    running--;
+                    queue.add(task);
+                    log.warn("Executor rejected the task of lane {}, it stays queued", laneTag(), e);
+                    return;
+                }
+            }
+        }
+
+        private void run(QueuedTask task) {
+            waitTimer(task.priority()).record(System.nanoTime() - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    synchronized (this) {
+                        running--;
+                        dispatch();
+                    }
+                }
+            };
+            CURRENT_LANE_SLOT.set(release);
+            try {
+                CallbackTasks.runWithMdc(task.mdc(), task.task());
+            } catch (RuntimeException e) {
+                log.error("Task of lane {} ended with unexpected exception", laneTag(), e);
+            } finally {
+                CURRENT_LANE_SLOT.remove();
+                release.run();
+            }
+        }
+
+        private Timer waitTimer(TaskPriority priority) {
+            return Timer.builder("reqour.tasks.wait")
+                    .description("Time the task waited in the lane before it was started")
+                    .tag("lane", laneTag())
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+
+        private String laneTag() {
+            return type.name().toLowerCase();
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import org.jboss.pnc.api.dto.Request;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
 
 /**
  * Executor used for starting long-running asynchronous tasks (which are, however, written in a synchronous manner).
@@ -18,6 +20,8 @@ public interface TaskExecutor {
     /**
      * Execute the task asynchronously.
      *
+     * @param type type of the task
+     * @param priority priority of the task among the tasks of the same type
      * @param callbackRequest request identifying where to send the callback
      * @param request input request of the synchronous executor
      * @param syncExecutor executor, which runs the operation synchronously
@@ -27,6 +31,8 @@ public interface TaskExecutor {
      * @param <R> result type
      */
     <T, R> void executeAsync(
+            TaskType type,
+            TaskPriority priority,
             Request callbackRequest,
             T request,
             Function<T, R> syncExecutor,
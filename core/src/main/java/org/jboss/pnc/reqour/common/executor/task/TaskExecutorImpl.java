@@ -13,14 +13,25 @@ import jakarta.inject.Inject;
 
 import org.eclipse.microprofile.context.ManagedExecutor;
 import org.jboss.pnc.api.dto.Request;
+import org.jboss.pnc.reqour.config.ConfigConstants;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
 
+import io.quarkus.arc.lookup.LookupIfProperty;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Implementation of {@link TaskExecutor} using container's {@link ManagedExecutor}, which acts as a delegate, where the
- * task executor actually delegates the computation.
+ * task executor actually delegates the computation.<br/>
+ * Tasks are started immediately, regardless of their type and priority. Used only when both the scheduling and virtual
+ * threads are disabled, otherwise {@link SchedulingTaskExecutor} or {@link VirtualThreadTaskExecutor} is used.
  */
 @ApplicationScoped
+@LookupIfProperty(name = ConfigConstants.TASK_SCHEDULING_ENABLED, stringValue = ConfigConstants.FALSE)
+@LookupIfProperty(
+        name = ConfigConstants.TASK_VIRTUAL_THREADS_ENABLED,
+        stringValue = ConfigConstants.FALSE,
+        lookupIfMissing = true)
 @Slf4j
 public class TaskExecutorImpl implements TaskExecutor {
 
@@ -33,6 +44,8 @@ public class TaskExecutorImpl implements TaskExecutor {
 
     @Override
     public <T, R> void executeAsync(
+            TaskType type,
+            TaskPriority priority,
             Request callbackRequest,
             T request,
             Function<T, R> syncExecutor,
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.executor.task;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.context.ThreadContext;
+import org.jboss.pnc.api.dto.Request;
+import org.jboss.pnc.reqour.config.ConfigConstants;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
+import org.slf4j.MDC;
+
+import io.quarkus.arc.lookup.LookupIfProperty;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of {@link TaskExecutor}, which runs every task on its own virtual thread. Tasks spend almost all their
+ * time blocked on git processes and HTTP calls, hence hundreds of them can run at once without any platform thread
+ * pool sized for them.<br/>
+ * Tasks are started immediately, regardless of their type and priority. Used only when the scheduling is disabled and
+ * virtual threads are enabled. Thread context (as well as MDC) of the submitting thread is propagated into the task.
+ */
+@ApplicationScoped
+@LookupIfProperty(name = ConfigConstants.TASK_SCHEDULING_ENABLED, stringValue = ConfigConstants.FALSE)
+@LookupIfProperty(name = ConfigConstants.TASK_VIRTUAL_THREADS_ENABLED, stringValue = ConfigConstants.TRUE)
+@Slf4j
+public class VirtualThreadTaskExecutor implements TaskExecutor {
+
+    private final ExecutorService executor = newVirtualThreadExecutor();
+    private final ThreadContext threadContext;
+
+    @Inject
+    public VirtualThreadTaskExecutor(ThreadContext threadContext) {
+        this.threadContext = threadContext;
+    }
+
+    @Override
+    public <T, R> void executeAsync(
+            TaskType type,
+            TaskPriority priority,
+            Request callbackRequest,
+            T request,
+            Function<T, R> syncExecutor,
+            BiFunction<T, Throwable, R> errorHandler,
+            BiConsumer<Request, R> callbackSender) {
+        Runnable task = CallbackTasks.of(callbackRequest, request, syncExecutor, errorHandler, callbackSender);
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        executor.execute(threadContext.contextualRunnable(() -> {
+            try {
+                CallbackTasks.runWithMdc(mdc, task);
+            } catch (RuntimeException e) {
+                log.error("Task of type {} ended with unexpected exception", type, e);
+            }
+        }));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    static ExecutorService newVirtualThreadExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("reqour-task-", 0).factory());
+    }
+}
@@ -6,6 +6,7 @@ package org.jboss.pnc.reqour.common.utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.model.ProcessContext;
@@ -22,12 +23,16 @@ public class GitUtils {
     public static final String FETCH_HEAD = "FETCH_HEAD";
 
     public static List<String> add(String filename, boolean force) {
+        return add(List.of(filename), force);
+    }
+
+    public static List<String> add(List<String> filenames, boolean force) {
         List<String> command = new ArrayList<>(List.of("git", "add"));
         if (force) {
             command.add("--force");
         }
         command.add("--");
-        command.add(filename);
+        command.addAll(filenames);
 
         return command;
     }
@@ -54,6 +59,34 @@ public class GitUtils {
         return List.of("git", "clone", url, ".");
     }
 
+    /**
+     * Clone, optionally partially and sparsely.
+     *
+     * @param url git url to clone from
+     * @param filter object filter of the partial clone (e.g. blob:none), objects matching it are fetched on demand
+     * @param sparse whether only the files in the root directory are checked out (until the sparse checkout is set)
+     */
+    public static List<String> clone(String url, Optional<String> filter, boolean sparse) {
+        List<String> command = new ArrayList<>(List.of("git", "clone"));
+        filter.ifPresent(f -> command.add("--filter=" + f));
+        if (sparse) {
+            command.add("--sparse");
+        }
+        command.add(url);
+        command.add(".");
+        return command;
+    }
+
+    public static List<String> sparseCheckoutSet(List<String> directories) {
+        List<String> command = new ArrayList<>(List.of("git", "sparse-checkout", "set", "--cone"));
+        command.addAll(directories);
+        return command;
+    }
+
+    public static List<String> sparseCheckoutDisable() {
+        return List.of("git", "sparse-checkout", "disable");
+    }
+
     /**
      * We clone to the .git folder, based on this stackoverflow answer:
      * https://stackoverflow.com/questions/67699/how-do-i-clone-all-remote-branches/7216269#7216269
@@ -66,6 +99,15 @@ public class GitUtils {
         return List.of("git", "clone", "--mirror", url, "./.git");
     }
 
+    /**
+     * Mirror-clone directly into the current directory, i.e. the current directory itself becomes a bare repository.
+     *
+     * @param url git url to clone from
+     */
+    public static List<String> cloneBareMirror(String url) {
+        return List.of("git", "clone", "--mirror", url, ".");
+    }
+
     public static List<String> commit(String commitMessage) {
         return List.of("git", "commit", "-m", commitMessage);
     }
@@ -78,6 +120,18 @@ public class GitUtils {
         return List.of("git", "config", "--local", "user.name", username);
     }
 
+    public static List<String> getConfigValue(String key) {
+        return List.of("git", "config", "--get", key);
+    }
+
+    public static List<String> configureLocally(String key, String value) {
+        return List.of("git", "config", "--local", key, value);
+    }
+
+    public static List<String> setIndexVersion(String version) {
+        return List.of("git", "update-index", "--index-version", version);
+    }
+
     public static List<String> disableBareRepository() {
         return List.of("git", "config", "--bool", "core.bare", "false");
     }
@@ -103,14 +157,37 @@ public class GitUtils {
         return List.of("git", "show-ref", "-q", "--tags", ref);
     }
 
-    public static List<String> doesTagExistAtRemote(String remote, String tag) {
-        return List.of("git", "ls-remote", "--exit-code", remote, String.format("refs/tags/%s", tag));
+    public static List<String> listLocalBranchesAndTags() {
+        return List.of("git", "for-each-ref", "--format=%(objectname)%09%(refname)", "refs/heads/", "refs/tags/");
+    }
+
+    /**
+     * List branches and tags advertised by the remote. Protocol v2 is used, so that the refs are filtered already by
+     * the server (by the means of ref prefixes), e.g. pull requests refs are not advertised at all.
+     */
+    public static List<String> lsRemoteBranchesAndTags(String remote) {
+        return List.of("git", "-c", "protocol.version=2", "ls-remote", "--heads", "--tags", remote);
+    }
+
+    /**
+     * List the local refs starting with the prefix, e.g. {@code refs/tags/}.
+     */
+    public static List<String> listLocalRefs(String prefix) {
+        return List.of("git", "for-each-ref", "--format=%(objectname)%09%(refname)", prefix);
+    }
+
+    public static List<String> updateRef(String ref, String newValue) {
+        return List.of("git", "update-ref", ref, newValue);
     }
 
     public static List<String> doesShaExists(String ref) {
         return List.of("git", "cat-file", "-e", ref + "^{commit}");
     }
 
+    public static List<String> showFileAtRef(String ref, String path) {
+        return List.of("git", "cat-file", "-p", String.format("%s:%s", ref, path));
+    }
+
     public static List<String> lfsInstall() {
         return List.of("git", "lfs", "install");
     }
@@ -119,6 +196,38 @@ public class GitUtils {
         return List.of("git", "lfs", "fetch", "--all");
     }
 
+    /**
+     * Fetch LFS objects of the given ref. In case of recent, also objects of the recent history of the ref (as
+     * configured by lfs.fetchrecent* options) are fetched.
+     */
+    public static List<String> lfsFetchRef(String remote, String ref, boolean recent) {
+        List<String> command = new ArrayList<>(List.of("git", "lfs", "fetch"));
+        if (recent) {
+            command.add("--recent");
+        }
+        command.add(remote);
+        command.add(ref);
+        return command;
+    }
+
+    public static List<String> lfsCheckout() {
+        return List.of("git", "lfs", "checkout");
+    }
+
+    /**
+     * List LFS objects (with full OIDs) referenced by all the refs.
+     */
+    public static List<String> lfsListAllObjects() {
+        return List.of("git", "lfs", "ls-files", "--all", "--long");
+    }
+
+    /**
+     * List LFS objects (with full OIDs) referenced by the given ref.
+     */
+    public static List<String> lfsListObjectsOfRef(String ref) {
+        return List.of("git", "lfs", "ls-files", "--long", ref);
+    }
+
     public static List<String> fetchRef(String remote, String ref, boolean fetchShallowly, boolean dryRun) {
         List<String> command = new ArrayList<>(List.of("git", "fetch", remote, ref));
         if (fetchShallowly) {
@@ -130,6 +239,22 @@ public class GitUtils {
         return command;
     }
 
+    public static List<String> countObjects() {
+        return List.of("git", "count-objects", "-v");
+    }
+
+    public static List<String> isShallowRepository() {
+        return List.of("git", "rev-parse", "--is-shallow-repository");
+    }
+
+    public static List<String> checkConnectivity() {
+        return List.of("git", "fsck", "--connectivity-only", "--no-dangling", "--no-progress");
+    }
+
+    public static List<String> fetchPrune(String remote) {
+        return List.of("git", "fetch", "--prune", remote);
+    }
+
     public static List<String> push(String remote, String ref, boolean force) {
         List<String> command = new ArrayList<>(List.of("git", "push"));
         if (force) {
@@ -159,6 +284,40 @@ public class GitUtils {
         return List.of("git", "push", "--tags", remote);
     }
 
+    /**
+     * Push exactly the given refs (under the same name). Negotiation is used, so that only the objects missing at the
+     * remote are sent.
+     *
+     * @param remote remote to push into
+     * @param refs full names of the refs, e.g. refs/tags/1.0.0
+     * @param atomic whether either all the refs are updated at the remote, or none of them
+     */
+    public static List<String> pushRefs(String remote, List<String> refs, boolean atomic) {
+        return pushRefspecs(remote, refs.stream().map(ref -> ref + ":" + ref).toList(), atomic);
+    }
+
+    /**
+     * Push the given refspecs in a single push. Negotiation is used, so that only the objects missing at the remote
+     * are sent.
+     *
+     * @param remote remote to push into
+     * @param refspecs explicit refspecs, e.g. refs/tags/1.0.0:refs/tags/1.0.0 or &lt;sha&gt;:refs/heads/branch
+     * @param atomic whether either all the refs are updated at the remote, or none of them
+     */
+    public static List<String> pushRefspecs(String remote, List<String> refspecs, boolean atomic) {
+        if (refspecs.isEmpty()) {
+            throw new GitException("Cannot push refs to " + remote + ", since refs is an empty array.");
+        }
+
+        var command = new ArrayList<>(List.of("git", "-c", "push.negotiate=true", "push"));
+        if (atomic) {
+            command.add("--atomic");
+        }
+        command.add(remote);
+        command.addAll(refspecs);
+        return command;
+    }
+
     public static List<String> pushRefWithTags(String ref, String remote, List<String> tags) {
         if (tags.isEmpty()) {
             throw new GitException("Cannot push tags to " + remote + ", since tags is an empty array.");
@@ -173,6 +332,10 @@ public class GitUtils {
         return List.of("git", "remote", "add", remote, url);
     }
 
+    public static List<String> setRemoteUrl(String remote, String url) {
+        return List.of("git", "remote", "set-url", remote, url);
+    }
+
     public static List<String> renameRemote(String oldRemote, String newRemote) {
         return List.of("git", "remote", "rename", oldRemote, newRemote);
     }
@@ -182,18 +345,45 @@ public class GitUtils {
     }
 
     public static List<String> remove(String filename, boolean cached) {
+        return remove(List.of(filename), cached);
+    }
+
+    public static List<String> remove(List<String> filenames, boolean cached) {
         List<String> command = new ArrayList<>(List.of("git", "rm"));
         if (cached) {
             command.add("--cached");
         }
         command.add("--");
-        command.add(filename);
+        command.addAll(filenames);
 
         return command;
     }
 
-    public static List<String> submoduleUpdateInit() {
-        return List.of("git", "submodule", "update", "--init");
+    /**
+     * Initialize and check out the submodules, cloning up to the given number of them in parallel.
+     *
+     * @param jobs number of submodules cloned in parallel
+     * @param shallow whether only the recorded commits of the submodules are fetched (without their history)
+     * @param filter object filter (e.g. {@code blob:none}) of partial clones of the submodules, if any
+     */
+    public static List<String> submoduleUpdateInit(int jobs, boolean shallow, Optional<String> filter) {
+        List<String> command = new ArrayList<>(
+                List.of("git", "submodule", "update", "--init", "--jobs", String.valueOf(jobs)));
+        if (shallow) {
+            command.add("--depth=1");
+        }
+        filter.ifPresent(f -> command.add("--filter=" + f));
+
+        return command;
+    }
+
+    /**
+     * List paths of the submodules defined in the given file (e.g. {@code .gitmodules}), as NUL-terminated entries
+     * {@code <key>\n<path>}.
+     */
+    public static List<String> listSubmodulePaths(String submodulesFile) {
+        return List
+                .of("git", "config", "--null", "--file", submodulesFile, "--get-regexp", "^submodule\\..*\\.path$");
     }
 
     public static List<String> createBranch(String branchName) {
@@ -208,6 +398,21 @@ public class GitUtils {
         return List.of("git", "tag", "--merged", ref);
     }
 
+    /**
+     * Write commit-graph of all the commits reachable from the refs. The graph is split into layers, so that writing it
+     * after a fetch adds only a (small) new layer.
+     */
+    public static List<String> writeCommitGraph() {
+        return List.of("git", "commit-graph", "write", "--reachable", "--split");
+    }
+
+    /**
+     * Write multi-pack index of all the packs, together with the reachability bitmaps.
+     */
+    public static List<String> writeMultiPackIndexWithBitmaps() {
+        return List.of("git", "multi-pack-index", "write", "--bitmap");
+    }
+
     public static List<String> createAnnotatedTag(String name, String message) {
         return List.of("git", "tag", "-a", "-m", message, name);
     }
@@ -27,6 +27,8 @@ public class ConfigConstants {
     public static final String PRIVATE_GITHUB_USER = REQOUR_CORE_CONFIG + ".git.private-github-user";
     public static final String INTERNAL_URL_VALIDATION = REQOUR_CORE_CONFIG + ".git.validate-internal-url";
     public static final String ENVS_CONFIG = REQOUR_CORE_CONFIG + ".envs";
+    public static final String TASK_SCHEDULING_ENABLED = REQOUR_CORE_CONFIG + ".task-executor.scheduling";
+    public static final String TASK_VIRTUAL_THREADS_ENABLED = REQOUR_CORE_CONFIG + ".task-executor.virtual-threads";
     //endregion
 
     //region Reqour Adjuster config
@@ -59,6 +59,34 @@ public class ConfigUtils {
         return config.git().privateGithubUser();
     }
 
+    public boolean isBareSyncEnabled() {
+        return config.git().bareSync();
+    }
+
+    public GitConfig.PushConfig getPushConfig() {
+        return config.git().push();
+    }
+
+    public GitConfig.LfsConfig getLfsConfig() {
+        return config.git().lfs();
+    }
+
+    public GitConfig.BackendConfig getGitBackendConfig() {
+        return config.git().backend();
+    }
+
+    public GitConfig.ReachabilityIndexConfig getReachabilityIndexConfig() {
+        return config.git().reachabilityIndex();
+    }
+
+    public GitConfig.TuningConfig getTuningConfig() {
+        return config.git().tuning();
+    }
+
+    public GitConfig.SshMultiplexingConfig getSshMultiplexingConfig() {
+        return config.git().sshMultiplexing();
+    }
+
     public Committer getCommitter() {
         return config.git().user();
     }
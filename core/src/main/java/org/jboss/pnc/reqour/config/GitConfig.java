@@ -4,10 +4,15 @@
  */
 package org.jboss.pnc.reqour.config;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import org.jboss.pnc.reqour.enums.GitBackendType;
+import org.jboss.pnc.reqour.enums.GitTuningProfile;
+import org.jboss.pnc.reqour.enums.LfsFetchScope;
+
 import io.smallrye.config.WithDefault;
 
 /**
@@ -33,4 +38,214 @@ public interface GitConfig {
     boolean validateInternalUrl();
 
     Committer user();
+
+    /**
+     * Boolean flag whether the sync of the whole repository should stay bare end to end, i.e. refs are fetched from
+     * the origin and pushed into the target without checking out the working tree.<br/>
+     * The working tree is materialized only when the repository uses LFS, since LFS objects need to be fetched then.
+     */
+    @WithDefault("true")
+    boolean bareSync();
+
+    MirrorCacheConfig mirrorCache();
+
+    PushConfig push();
+
+    LfsConfig lfs();
+
+    BackendConfig backend();
+
+    ReachabilityIndexConfig reachabilityIndex();
+
+    TuningConfig tuning();
+
+    SshMultiplexingConfig sshMultiplexing();
+
+    /**
+     * Configuration of sharing SSH connections by all the git commands of a task (SSH {@code ControlMaster}), so that
+     * only the first connection to a host pays the SSH handshake and authentication.
+     */
+    interface SshMultiplexingConfig {
+
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Directory with the control sockets, every task creates its own subdirectory in it. The path of the sockets
+         * has to fit into ~100 characters, hence the directory is expected to be short.
+         */
+        @WithDefault("/tmp/reqour-ssh")
+        Path controlDirectory();
+
+        /**
+         * How long the idle master connection is kept, in case it is not closed at the end of the task.
+         */
+        @WithDefault("60")
+        int persistSeconds();
+    }
+
+    /**
+     * Configuration of the git settings applied to the working directories (see {@link GitTuningProfile}).
+     */
+    interface TuningConfig {
+
+        @WithDefault("auto")
+        GitTuningProfile profile();
+
+        /**
+         * Number of files in the index, from which {@link GitTuningProfile#AUTO} considers the repository large.
+         */
+        @WithDefault("20000")
+        int largeRepositoryFiles();
+
+        /**
+         * Size (in bytes) of the object store, from which {@link GitTuningProfile#AUTO} considers the repository large.
+         */
+        @WithDefault("1073741824")
+        long largeRepositorySize();
+    }
+
+    /**
+     * Configuration of the structures, which speed up the reachability queries (e.g. which tags are reachable from a
+     * ref), and the walks of the history in general. Both of them are written best-effort, the queries work without
+     * them (slower) too.
+     */
+    interface ReachabilityIndexConfig {
+
+        /**
+         * Whether the commit-graph (with generation numbers) is written once the cached mirror is refreshed, or before
+         * the tags reachable from a cloned ref are listed. Clones, which no reachability query follows, are left
+         * without it.
+         */
+        @WithDefault("true")
+        boolean commitGraph();
+
+        /**
+         * Whether the reachability bitmaps (of the multi-pack index) are written for the cached mirrors. Clones of the
+         * mirror share them, hence e.g. pushes from the clones count the objects to send by the bitmaps.
+         */
+        @WithDefault("true")
+        boolean bitmaps();
+
+        /**
+         * Number of packs fetched into the mirror since its bitmaps were written, after which they are written again
+         * by the refresh of the mirror. Rewriting the bitmaps covers all the objects of the mirror, hence it is not
+         * done on every refresh (refreshes update the commit-graph incrementally only).
+         */
+        @WithDefault("8")
+        int bitmapsRewritePackThreshold();
+    }
+
+    /**
+     * Which backend serves the read-only queries of the local repositories, per class of the queries. Network and
+     * mutating operations always use the git CLI. Backend {@code batch} makes a difference only for the ref lookups.
+     */
+    interface BackendConfig {
+
+        /**
+         * Resolving refs and checking whether refs or commits exist.
+         */
+        @WithDefault("jgit")
+        GitBackendType refLookup();
+
+        /**
+         * Listing branches and tags.
+         */
+        @WithDefault("jgit")
+        GitBackendType refListing();
+
+        /**
+         * Writing the tree of the index.
+         */
+        @WithDefault("cli")
+        GitBackendType tree();
+    }
+
+    /**
+     * Configuration of LFS object retrieval.
+     */
+    interface LfsConfig {
+
+        /**
+         * Directory with LFS objects shared by all the repositories (set as {@code lfs.storage}), so that an object is
+         * downloaded only once. When not set, every repository stores its own LFS objects.
+         */
+        Optional<Path> storage();
+
+        /**
+         * Maximum size (in bytes) of the shared storage. Once exceeded, the least recently used objects are evicted.
+         */
+        @WithDefault("53687091200")
+        long maxStorageSize();
+
+        /**
+         * Number of LFS objects transferred concurrently (set as {@code lfs.concurrenttransfers}).
+         */
+        @WithDefault("8")
+        int concurrentTransfers();
+
+        /**
+         * How many days of the history of a ref (before its latest commit) are covered by
+         * {@link LfsFetchScope#REF_WITH_RECENT}.
+         */
+        @WithDefault("30")
+        int recentCommitsDays();
+
+        /**
+         * Which LFS objects are fetched for a ref, which is then pushed into an existing downstream repository. The
+         * pre-push hook of git-lfs fails on any LFS object of the pushed history, which is missing both locally and in
+         * the downstream, hence only {@link LfsFetchScope#ALL} is always safe. {@link LfsFetchScope#REF_WITH_RECENT} is
+         * an opt-in for deployments whose downstream repositories are known to have the LFS objects of the older
+         * history.
+         */
+        @WithDefault("all")
+        LfsFetchScope pushedRefScope();
+    }
+
+    /**
+     * Configuration of pushing many refs at once. Refs are split into chunks, each of them pushed atomically (when the
+     * server supports it) and retried on transient failures.
+     */
+    interface PushConfig {
+
+        @WithDefault("1000")
+        int chunkSize();
+
+        /**
+         * How many chunks are pushed at once. Parallel pushes into the same repository contend on the ref locks of the
+         * server, hence the chunks are pushed one by one by default.
+         */
+        @WithDefault("1")
+        int parallelism();
+
+        /**
+         * How many times a chunk, which failed transiently (on the transport or on a ref lock), is retried before
+         * giving up. Rejected chunks are not retried.
+         */
+        @WithDefault("2")
+        int maxRetries();
+
+        @WithDefault("true")
+        boolean atomic();
+    }
+
+    /**
+     * Configuration of the disk-backed cache of bare mirrors of the origin repositories. When enabled, cloning is
+     * served from the cached mirror, which is only incrementally refreshed from the origin.
+     */
+    interface MirrorCacheConfig {
+
+        @WithDefault("false")
+        boolean enabled();
+
+        @WithDefault("/tmp/reqour-mirror-cache")
+        Path directory();
+
+        /**
+         * Maximum size (in bytes) of all the cached mirrors together. Once exceeded, the least recently used mirrors
+         * are evicted.
+         */
+        @WithDefault("53687091200")
+        long maxSize();
+    }
 }
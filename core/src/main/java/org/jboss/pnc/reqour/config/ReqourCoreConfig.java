@@ -21,4 +21,6 @@ public interface ReqourCoreConfig {
     PNCHttpClientConfig pncHttpClientConfig();
 
     EnvironmentConfig envs();
+
+    TaskExecutorConfig taskExecutor();
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.config;
+
+import io.smallrye.config.WithDefault;
+
+/**
+ * Configuration of the executor of asynchronous tasks (clones and internal SCM repository creations).
+ */
+public interface TaskExecutorConfig {
+
+    /**
+     * Boolean flag whether tasks are scheduled in bounded, prioritized lanes (one per task type). Otherwise, they are
+     * handed directly to the managed executor.
+     */
+    @WithDefault("true")
+    boolean scheduling();
+
+    /**
+     * Boolean flag whether tasks run on virtual threads instead of the platform threads of the managed executor.
+     */
+    @WithDefault("false")
+    boolean virtualThreads();
+
+    LaneConfig cloneLane();
+
+    LaneConfig scmCreationLane();
+
+    interface LaneConfig {
+
+        /**
+         * Maximum number of tasks of the lane running at once. The default matches the (minimal) default size of the
+         * worker pool behind the managed executor, i.e. the parallelism of the tasks before they were scheduled in
+         * lanes.
+         */
+        @WithDefault("200")
+        int concurrency();
+
+        /**
+         * Maximum number of tasks of the lane waiting to be started. Tasks submitted once the queue is full are
+         * rejected.
+         */
+        @WithDefault("200")
+        int queueCapacity();
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.enums;
+
+/**
+ * Backend serving read-only queries of a local repository.
+ */
+public enum GitBackendType {
+
+    /**
+     * Every query forks a {@code git} process.
+     */
+    CLI,
+
+    /**
+     * Queries are served in process by JGit.
+     */
+    JGIT,
+
+    /**
+     * Lookups are answered by a single {@code git cat-file --batch-check} process kept for the whole task, other
+     * queries fork a {@code git} process.
+     */
+    BATCH,
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.enums;
+
+/**
+ * Set of git settings applied to a working directory once it is initialized or cloned.
+ */
+public enum GitTuningProfile {
+
+    /**
+     * Git defaults are kept.
+     */
+    NONE,
+
+    /**
+     * Settings cheap for any repository, e.g. no automatic gc (the working directories are short-living) and index
+     * preloading.
+     */
+    STANDARD,
+
+    /**
+     * Settings of {@link #STANDARD}, together with the ones paying off for huge trees only, e.g. untracked cache and
+     * parallel checkout.
+     */
+    LARGE,
+
+    /**
+     * Either {@link #STANDARD}, or {@link #LARGE}, chosen by the measured size of the repository.
+     */
+    AUTO,
+}
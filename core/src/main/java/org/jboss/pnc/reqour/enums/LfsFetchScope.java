@@ -0,0 +1,27 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.enums;
+
+/**
+ * Which LFS objects are fetched into a repository.
+ */
+public enum LfsFetchScope {
+
+    /**
+     * Objects of all the refs and their whole history, e.g. for the sync of the whole repository.
+     */
+    ALL,
+
+    /**
+     * Objects of the given ref only, e.g. when the ref is just built.
+     */
+    REF,
+
+    /**
+     * Objects of the given ref together with its recent history. Pushing the ref succeeds only in case the target
+     * repository has the objects of the older history already.
+     */
+    REF_WITH_RECENT,
+}
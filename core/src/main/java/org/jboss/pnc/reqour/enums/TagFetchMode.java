@@ -0,0 +1,27 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.enums;
+
+/**
+ * Which downstream tags are fetched during the alignment in order to find the existing tag of the aligned tree.
+ */
+public enum TagFetchMode {
+
+    /**
+     * All the downstream tags are fetched together with the repository, and all of them are scanned.
+     */
+    ALL,
+
+    /**
+     * Only the tags named after the execution root version (the names the alignment would give to the tag) are
+     * fetched, and only once they are needed.
+     */
+    TARGETED,
+
+    /**
+     * No downstream tags are fetched, the existing tag is found by the tree index only.
+     */
+    NONE,
+}
@@ -0,0 +1,16 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.enums;
+
+/**
+ * Priority of the asynchronous task within its lane. Tasks of higher priority are started first, tasks of the same
+ * priority are started in the order of their submission.
+ */
+public enum TaskPriority {
+
+    HIGH,
+
+    NORMAL,
+}
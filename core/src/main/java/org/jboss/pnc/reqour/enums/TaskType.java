@@ -0,0 +1,16 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.enums;
+
+/**
+ * Type of the asynchronous task. Every type is scheduled in its own lane, so that e.g. a burst of big clones cannot
+ * starve quick repository creations.
+ */
+public enum TaskType {
+
+    CLONE,
+
+    SCM_REPOSITORY_CREATION,
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between the refs of the source and the target repository, which is needed to synchronize the target.
+ * Refs present only in the target are not part of the plan, since the synchronization never deletes refs.
+ *
+ * @param created full names of refs which are missing in the target
+ * @param updated full names of refs which point to a different object in the target
+ * @param unchanged full names of refs which are already up-to-date in the target
+ */
+public record RefSyncPlan(List<String> created, List<String> updated, List<String> unchanged) {
+
+    public static RefSyncPlan compute(RemoteRefIndex source, RemoteRefIndex target) {
+        List<String> created = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        List<String> unchanged = new ArrayList<>();
+
+        for (Map.Entry<String, String> sourceRef : source.getRefs().entrySet()) {
+            String refName = sourceRef.getKey();
+            target.getSha(refName).ifPresentOrElse(targetSha -> {
+                if (targetSha.equals(sourceRef.getValue())) {
+                    unchanged.add(refName);
+                } else {
+                    updated.add(refName);
+                }
+            }, () -> created.add(refName));
+        }
+
+        return new RefSyncPlan(List.copyOf(created), List.copyOf(updated), List.copyOf(unchanged));
+    }
+
+    public List<String> changed() {
+        List<String> changed = new ArrayList<>(created);
+        changed.addAll(updated);
+        return changed;
+    }
+
+    public boolean isUpToDate() {
+        return created.isEmpty() && updated.isEmpty();
+    }
+}
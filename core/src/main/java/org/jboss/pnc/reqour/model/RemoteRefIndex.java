@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of the refs advertised by a remote (as obtained by {@code git ls-remote}), mapping the full ref
+ * name (e.g. {@code refs/heads/main}) to its SHA.<br/>
+ * The same format is used to capture the local refs (by {@code git for-each-ref}), so that they can be compared.
+ */
+public final class RemoteRefIndex {
+
+    public static final String BRANCH_PREFIX = "refs/heads/";
+    public static final String TAG_PREFIX = "refs/tags/";
+    private static final String PEELED_SUFFIX = "^{}";
+
+    private final Map<String, String> refs;
+
+    private RemoteRefIndex(Map<String, String> refs) {
+        this.refs = Collections.unmodifiableMap(refs);
+    }
+
+    /**
+     * Parse the output of {@code git ls-remote}, i.e. lines in the format {@code <sha>\t<ref name>}. Peeled entries
+     * of annotated tags ({@code refs/tags/<tag>^{}}) are skipped, hence tags are mapped to the SHA of the tag object.
+     */
+    public static RemoteRefIndex parse(List<String> lsRemoteLines) {
+        Map<String, String> refs = new LinkedHashMap<>();
+        for (String line : lsRemoteLines) {
+            String[] shaAndName = line.strip().split("\\s+", 2);
+            if (shaAndName.length != 2 || shaAndName[1].endsWith(PEELED_SUFFIX)) {
+                continue;
+            }
+            refs.put(shaAndName[1], shaAndName[0]);
+        }
+        return new RemoteRefIndex(refs);
+    }
+
+    public Optional<String> getSha(String refName) {
+        return Optional.ofNullable(refs.get(refName));
+    }
+
+    public boolean hasBranch(String branch) {
+        return refs.containsKey(BRANCH_PREFIX + branch);
+    }
+
+    public boolean hasTag(String tag) {
+        return refs.containsKey(TAG_PREFIX + tag);
+    }
+
+    public Map<String, String> getBranches() {
+        return refsWithPrefix(BRANCH_PREFIX);
+    }
+
+    public Map<String, String> getTags() {
+        return refsWithPrefix(TAG_PREFIX);
+    }
+
+    public Map<String, String> getRefs() {
+        return refs;
+    }
+
+    public boolean isEmpty() {
+        return refs.isEmpty();
+    }
+
+    private Map<String, String> refsWithPrefix(String prefix) {
+        Map<String, String> result = new LinkedHashMap<>();
+        refs.forEach((name, sha) -> {
+            if (name.startsWith(prefix)) {
+                result.put(name.substring(prefix.length()), sha);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteRefIndex" + refs;
+    }
+}
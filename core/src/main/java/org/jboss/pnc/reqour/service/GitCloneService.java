@@ -4,8 +4,11 @@
  */
 package org.jboss.pnc.reqour.service;
 
+import static org.jboss.pnc.reqour.common.utils.GitUtils.DEFAULT_REMOTE_NAME;
+
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -15,11 +18,15 @@ import org.jboss.pnc.api.reqour.dto.RepositoryCloneRequest;
 import org.jboss.pnc.api.reqour.dto.RepositoryCloneResponse;
 import org.jboss.pnc.api.reqour.dto.ReqourCallback;
 import org.jboss.pnc.reqour.common.GitCommands;
+import org.jboss.pnc.reqour.common.WorkdirScope;
+import org.jboss.pnc.reqour.common.cache.GitMirrorCache;
 import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.common.utils.IOUtils;
 import org.jboss.pnc.reqour.common.utils.URLUtils;
 import org.jboss.pnc.reqour.config.ConfigUtils;
 import org.jboss.pnc.reqour.model.ProcessContext;
+import org.jboss.pnc.reqour.model.RefSyncPlan;
+import org.jboss.pnc.reqour.model.RemoteRefIndex;
 import org.jboss.pnc.reqour.runtime.UserLogger;
 import org.jboss.pnc.reqour.service.api.CloneService;
 import org.slf4j.Logger;
@@ -35,28 +42,50 @@ public class GitCloneService implements CloneService {
 
     private final ConfigUtils configUtils;
     private final GitCommands gitCommands;
+    private final GitMirrorCache mirrorCache;
+    private final InFlightCloneRegistry inFlightClones;
     private final Logger userLogger;
 
     @Inject
-    public GitCloneService(ConfigUtils configUtils, GitCommands gitCommands, @UserLogger Logger userLogger) {
+    public GitCloneService(
+            ConfigUtils configUtils,
+            GitCommands gitCommands,
+            GitMirrorCache mirrorCache,
+            InFlightCloneRegistry inFlightClones,
+            @UserLogger Logger userLogger) {
         this.configUtils = configUtils;
         this.gitCommands = gitCommands;
+        this.mirrorCache = mirrorCache;
+        this.inFlightClones = inFlightClones;
         this.userLogger = userLogger;
     }
 
     @Override
     public RepositoryCloneResponse clone(RepositoryCloneRequest cloneRequest) {
+        // identical requests share a single sync, but each of them is responded with its own task ID
+        inFlightClones.runOrAttach(cloneRequest, () -> sync(cloneRequest));
+
+        return RepositoryCloneResponse.builder()
+                .originRepoUrl(cloneRequest.getOriginRepoUrl())
+                .targetRepoUrl(cloneRequest.getTargetRepoUrl())
+                .callback(ReqourCallback.builder().id(cloneRequest.getTaskId()).status(ResultStatus.SUCCESS).build())
+                .build();
+    }
+
+    private void sync(RepositoryCloneRequest cloneRequest) {
         Path cloneDir = IOUtils.createTempDirForCloning();
 
         String adjustedUrl = URLUtils
                 .addUsernameToUrl(cloneRequest.getTargetRepoUrl(), configUtils.getActiveGitProviderConfig().username());
-        boolean isInternalRepoNew = isInternalRepoNew(adjustedUrl);
+        boolean isInternalRepoNew = isInternalRepoNew(adjustedUrl, cloneDir);
         log.debug("Internal repository with adjusted URL '{}' is considered new: {}", adjustedUrl, isInternalRepoNew);
 
-        if (cloneRequest.getRef() == null || isInternalRepoNew) {
-            cloneEverything(cloneRequest, cloneDir);
-        } else {
-            cloneRefOnly(cloneRequest, cloneDir);
+        try (WorkdirScope _w = gitCommands.openWorkdirScope(cloneDir)) {
+            if (cloneRequest.getRef() == null || isInternalRepoNew) {
+                cloneEverything(cloneRequest, cloneDir);
+            } else {
+                cloneRefOnly(cloneRequest, cloneDir);
+            }
         }
 
         try {
@@ -64,12 +93,6 @@ public class GitCloneService implements CloneService {
         } catch (IOException ex) {
             log.warn("Could not delete the temporary directory", ex);
         }
-
-        return RepositoryCloneResponse.builder()
-                .originRepoUrl(cloneRequest.getOriginRepoUrl())
-                .targetRepoUrl(cloneRequest.getTargetRepoUrl())
-                .callback(ReqourCallback.builder().id(cloneRequest.getTaskId()).status(ResultStatus.SUCCESS).build())
-                .build();
     }
 
     private void cloneEverything(RepositoryCloneRequest request, Path cloneDir) {
@@ -81,13 +104,37 @@ public class GitCloneService implements CloneService {
         String targetRemote = "target";
 
         // From: https://stackoverflow.com/a/7216269/2907906
-        gitCommands.cloneMirror(request.getOriginRepoUrl(), processContextBuilder);
-        gitCommands.disableBareRepository(processContextBuilder);
-        gitCommands.resetHard(processContextBuilder);
-        gitCommands.setupGitLfsIfPresent(processContextBuilder);
+        cloneOrigin(request.getOriginRepoUrl(), true, processContextBuilder);
+        if (!configUtils.isBareSyncEnabled() || gitCommands.isLfsPresentAtRef("HEAD", processContextBuilder)) {
+            // LFS objects can be fetched (and later pushed) only with the working tree present
+            gitCommands.disableBareRepository(processContextBuilder);
+            gitCommands.resetHard(processContextBuilder);
+            gitCommands.setupGitLfsIfPresent(processContextBuilder);
+        } else {
+            log.debug("Staying bare, no working tree is needed for pushing refs without LFS");
+        }
         gitCommands.addRemote(targetRemote, request.getTargetRepoUrl(), processContextBuilder);
-        gitCommands.pushAll(targetRemote, processContextBuilder);
-        gitCommands.pushAllTags(targetRemote, processContextBuilder);
+        syncRefs(targetRemote, processContextBuilder);
+    }
+
+    /**
+     * Push into the target only the branches and tags which are missing there, or which point elsewhere.
+     */
+    private void syncRefs(String targetRemote, ProcessContext.Builder processContextBuilder) {
+        RemoteRefIndex targetRefs = gitCommands.getRemoteRefIndex(targetRemote, processContextBuilder);
+        RefSyncPlan plan = RefSyncPlan.compute(gitCommands.getLocalRefIndex(processContextBuilder), targetRefs);
+        userLogger.info(
+                "Syncing refs into '{}': {} to create, {} to update, {} unchanged",
+                targetRemote,
+                plan.created().size(),
+                plan.updated().size(),
+                plan.unchanged().size());
+
+        if (plan.isUpToDate()) {
+            userLogger.info("Target repository is already up-to-date, nothing to push");
+            return;
+        }
+        gitCommands.pushRefs(targetRemote, plan.changed(), processContextBuilder);
     }
 
     private void cloneRefOnly(RepositoryCloneRequest request, Path cloneDir) {
@@ -98,50 +145,96 @@ public class GitCloneService implements CloneService {
 
         String targetRemote = "target";
 
-        gitCommands.clone(request.getOriginRepoUrl(), processContextBuilder);
-        gitCommands.setupGitLfsIfPresent(processContextBuilder);
+        cloneOrigin(request.getOriginRepoUrl(), false, processContextBuilder);
         gitCommands.checkout(request.getRef(), true, processContextBuilder);
+        gitCommands.setupGitLfsForPushIfPresent("HEAD", processContextBuilder);
         gitCommands.addRemote(targetRemote, request.getTargetRepoUrl(), processContextBuilder);
         pushClonedChanges(request.getRef(), targetRemote, processContextBuilder);
     }
 
-    private boolean isInternalRepoNew(String url) {
-        log.info("Checking if internal repository with url '{}' is new", url);
-
-        Path cloneDir = IOUtils.createTempDirForCloning();
+    /**
+     * Clone the origin repository, either directly, or (when enabled) from its cached mirror.
+     */
+    private void cloneOrigin(String originUrl, boolean mirror, ProcessContext.Builder processContextBuilder) {
+        if (!mirrorCache.isEnabled()) {
+            if (mirror) {
+                gitCommands.cloneMirror(originUrl, processContextBuilder);
+            } else {
+                gitCommands.clone(originUrl, processContextBuilder);
+            }
+            gitCommands.applyTuningProfile(processContextBuilder);
+            return;
+        }
 
-        gitCommands.clone(url, ProcessContext.withWorkdirAndConsumers(cloneDir, userLogger::info, userLogger::warn));
+        mirrorCache.withMirror(originUrl, mirrorDir -> {
+            if (mirror) {
+                gitCommands.cloneMirror(mirrorDir.toString(), processContextBuilder);
+            } else {
+                gitCommands.clone(mirrorDir.toString(), processContextBuilder);
+            }
+            return null;
+        });
+        // point the origin back to the real repository, e.g. LFS objects are not part of the mirror
+        gitCommands.setRemoteUrl(DEFAULT_REMOTE_NAME, originUrl, processContextBuilder);
+        gitCommands.applyTuningProfile(processContextBuilder);
+    }
 
-        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(cloneDir);
-        final boolean isInternalRepoNew;
-        if (gitCommands.listTags(processContextBuilder).isEmpty()) {
-            isInternalRepoNew = gitCommands.listBranches(processContextBuilder).isEmpty();
-        } else {
-            isInternalRepoNew = false;
-        }
+    private boolean isInternalRepoNew(String url, Path workdir) {
+        log.info("Checking if internal repository with url '{}' is new", url);
 
-        try {
-            IOUtils.deleteTempDir(cloneDir);
-        } catch (IOException ex) {
-            log.warn("Could not delete the temporary directory", ex);
-        }
-        return isInternalRepoNew;
+        // the refs advertised by the remote are enough to decide, no need to download any objects
+        ProcessContext.Builder processContextBuilder = ProcessContext
+                .withWorkdirAndConsumers(workdir, userLogger::info, userLogger::warn);
+        return gitCommands.getRemoteRefIndex(url, processContextBuilder).isEmpty();
     }
 
     public void pushClonedChanges(String ref, String remote, ProcessContext.Builder processContextBuilder) {
         if (gitCommands.doesBranchExistsLocally(ref, processContextBuilder)) {
             gitCommands.push(remote, ref, false, processContextBuilder);
         } else if (gitCommands.doesTagExistLocally(ref, processContextBuilder)) {
-            gitCommands.pushTags(
-                    remote,
-                    gitCommands.listTagsReachableFromRef(ref, processContextBuilder),
-                    processContextBuilder);
+            pushReachableTags(ref, remote, processContextBuilder);
+        } else {
+            addTagAndPush(ref, "HEAD", remote, processContextBuilder);
+        }
+    }
+
+    /**
+     * Push the ref the same way as {@link #pushClonedChanges(String, String, ProcessContext.Builder)}, but with the
+     * branch (or the added tag) pointing to the given commit, regardless of the commits made on top of it locally.
+     *
+     * @param ref ref which was cloned
+     * @param commit commit the ref was cloned at
+     * @param remote remote to push into
+     */
+    public void pushClonedChanges(
+            String ref,
+            String commit,
+            String remote,
+            ProcessContext.Builder processContextBuilder) {
+        if (gitCommands.doesBranchExistsLocally(ref, processContextBuilder)) {
+            gitCommands.push(remote, commit + ":" + RemoteRefIndex.BRANCH_PREFIX + ref, false, processContextBuilder);
+        } else if (gitCommands.doesTagExistLocally(ref, processContextBuilder)) {
+            pushReachableTags(ref, remote, processContextBuilder);
         } else {
-            addTagAndPush(ref, remote, processContextBuilder);
+            addTagAndPush(ref, commit, remote, processContextBuilder);
         }
     }
 
-    private void addTagAndPush(String ref, String remote, ProcessContext.Builder processContextBuilder) {
+    private void pushReachableTags(String ref, String remote, ProcessContext.Builder processContextBuilder) {
+        // the only reachability query of the clone, hence the commit-graph is not written unless the ref is a tag
+        gitCommands.prepareReachabilityIndex(false, processContextBuilder);
+        List<String> tagRefs = gitCommands.listTagsReachableFromRef(ref, processContextBuilder)
+                .stream()
+                .map(tag -> RemoteRefIndex.TAG_PREFIX + tag)
+                .toList();
+        gitCommands.pushRefs(remote, tagRefs, processContextBuilder);
+    }
+
+    private void addTagAndPush(
+            String ref,
+            String commit,
+            String remote,
+            ProcessContext.Builder processContextBuilder) {
         log.info("adding tag and pushing");
         String newTag = "reqour-sync-" + ref;
 
@@ -153,7 +246,7 @@ public class GitCloneService implements CloneService {
                             remote));
         }
 
-        gitCommands.createLightweightTag(newTag, processContextBuilder);
+        gitCommands.updateRef(RemoteRefIndex.TAG_PREFIX + newTag, commit, processContextBuilder);
         gitCommands.push(remote, newTag, false, processContextBuilder);
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.pnc.api.reqour.dto.RepositoryCloneRequest;
+import org.jboss.pnc.reqour.common.executor.task.SchedulingTaskExecutor;
+import org.jboss.pnc.reqour.runtime.UserLogger;
+import org.slf4j.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry of clones which are currently running. A clone request identical to a running one (i.e. with the same
+ * origin, target and ref) does not start a new sync, but it attaches to the running one and shares its outcome.
+ */
+@ApplicationScoped
+@Slf4j
+public class InFlightCloneRegistry {
+
+    private final ConcurrentMap<CloneKey, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Counter startedClones;
+    private final Counter attachedClones;
+    private final Logger userLogger;
+
+    @Inject
+    public InFlightCloneRegistry(MeterRegistry meterRegistry, @UserLogger Logger userLogger) {
+        this.startedClones = Counter.builder("reqour.clone.requests")
+                .description("Clone requests, either starting a new sync, or attached to an identical running one")
+                .tag("coalesced", "false")
+                .register(meterRegistry);
+        this.attachedClones = Counter.builder("reqour.clone.requests")
+                .description("Clone requests, either starting a new sync, or attached to an identical running one")
+                .tag("coalesced", "true")
+                .register(meterRegistry);
+        this.userLogger = userLogger;
+    }
+
+    /**
+     * Run the sync of the given request, unless an identical one is already running. In such a case, wait for the
+     * running one to finish instead, and end the same way (i.e. re-throw its exception in case it failed).
+     *
+     * @param cloneRequest clone request
+     * @param sync the sync itself
+     */
+    public void runOrAttach(RepositoryCloneRequest cloneRequest, Runnable sync) {
+        CloneKey key = CloneKey.of(cloneRequest);
+        CompletableFuture<Void> ownSync = new CompletableFuture<>();
+        CompletableFuture<Void> runningSync = inFlight.putIfAbsent(key, ownSync);
+
+        if (runningSync != null) {
+            attachedClones.increment();
+            userLogger.info("Identical clone is already running, waiting for its result instead of starting a new one");
+            // waiting does not need the slot in the lane of clones, let another clone run instead
+            SchedulingTaskExecutor.releaseLaneSlot();
+            try {
+                runningSync.join();
+                return;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+
+        startedClones.increment();
+        try {
+            sync.run();
+            ownSync.complete(null);
+        } catch (RuntimeException | Error e) {
+            ownSync.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ownSync);
+        }
+    }
+
+    record CloneKey(String originRepoUrl, String targetRepoUrl, String ref) {
+
+        static CloneKey of(RepositoryCloneRequest cloneRequest) {
+            return new CloneKey(
+                    cloneRequest.getOriginRepoUrl(),
+                    cloneRequest.getTargetRepoUrl(),
+                    cloneRequest.getRef());
+        }
+    }
+}
@@ -4,17 +4,27 @@
  */
 package org.jboss.pnc.reqour.common;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
 
 import jakarta.inject.Inject;
 
+import org.apache.commons.io.FileUtils;
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutorImpl;
+import org.jboss.pnc.reqour.enums.GitTuningProfile;
 import org.jboss.pnc.reqour.model.ProcessContext;
 import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
 
 import io.quarkus.test.junit.QuarkusTest;
 
@@ -57,4 +67,182 @@ class GitCommandsTest {
         Files.delete(gitAttributesFilePath);
         Files.delete(tempDirectory);
     }
-}
\ No newline at end of file
+
+    @Test
+    void isLfsPresentAtRef_noGitattributesCommitted_returnsFalse() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, "README.md", "readme");
+
+        assertFalse(
+                gitCommands.isLfsPresentAtRef("HEAD", ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory)));
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    @Test
+    void isLfsPresentAtRef_lfsConfiguredInCommittedGitattributes_returnsTrue() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, GitCommands.GIT_ATTRIBUTES, "*.pdf filter=lfs diff=lfs merge=lfs -text");
+        // the check has to work without the working tree
+        Files.delete(tempDirectory.resolve(GitCommands.GIT_ATTRIBUTES));
+
+        assertTrue(
+                gitCommands.isLfsPresentAtRef("HEAD", ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory)));
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    @Test
+    void localQueries_withinScope_areMemoizedUntilChanged() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, "README.md", "readme");
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory);
+
+        try (WorkdirScope scope = gitCommands.openWorkdirScope(tempDirectory)) {
+            String head = gitCommands.revParse(tempDirectory);
+            assertEquals(head, gitCommands.revParse(tempDirectory));
+            assertFalse(gitCommands.doesTagExistLocally("1.0.0", processContextBuilder));
+            assertFalse(gitCommands.doesTagExistLocally("1.0.0", processContextBuilder));
+            assertEquals(2, scope.getLocalQueryHits());
+
+            gitCommands.createLightweightTag("1.0.0", processContextBuilder);
+            assertTrue(gitCommands.doesTagExistLocally("1.0.0", processContextBuilder));
+
+            String tree = gitCommands.writeTree(processContextBuilder);
+            Files.writeString(tempDirectory.resolve("new-file"), "content");
+            gitCommands.add("new-file", processContextBuilder);
+            assertNotEquals(tree, gitCommands.writeTree(processContextBuilder));
+            // adding into the index does not move any ref
+            assertEquals(head, gitCommands.revParse(tempDirectory));
+
+            gitCommands.commit("Add new-file", processContextBuilder);
+            assertNotEquals(head, gitCommands.revParse(tempDirectory));
+            assertEquals(3, scope.getLocalQueryHits());
+        }
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    @Test
+    void localQueries_outsideScope_areNotMemoized() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, "README.md", "readme");
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory);
+
+        assertFalse(gitCommands.doesTagExistLocally("1.0.0", processContextBuilder));
+        // tag created behind the back of GitCommands
+        new ProcessExecutorImpl(NOPLogger.NOP_LOGGER)
+                .execute(processContextBuilder.command(List.of("git", "tag", "1.0.0")).build());
+        assertTrue(gitCommands.doesTagExistLocally("1.0.0", processContextBuilder));
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    @Test
+    void remoteRefChecks_unreachableRemote_refsConsideredMissingExceptTags() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, "README.md", "readme");
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory);
+        gitCommands.addRemote("unreachable", tempDirectory.resolve("missing").toString(), processContextBuilder);
+
+        assertThrows(
+                GitException.class,
+                () -> gitCommands.doesTagExistAtRemote("unreachable", "1.0.0", processContextBuilder));
+        assertFalse(gitCommands.doesBranchExistAtRemote("unreachable", "main", processContextBuilder));
+        assertFalse(gitCommands.doesReferenceExistAtRemote("unreachable", "1.0.0", processContextBuilder));
+        assertThrows(GitException.class, () -> gitCommands.getRemoteRefIndex("unreachable", processContextBuilder));
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    @Test
+    void isTransientPushFailure_transportAndLockFailures_areRetriedButRejectionsAreNot() {
+        assertTrue(GitCommands.isTransientPushFailure(List.of("fatal: the remote end hung up unexpectedly")));
+        assertTrue(
+                GitCommands.isTransientPushFailure(
+                        List.of(" ! [remote rejected] 1.0.0 -> 1.0.0 (cannot lock ref 'refs/tags/1.0.0')")));
+        assertFalse(GitCommands.isTransientPushFailure(List.of(" ! [rejected] main -> main (non-fast-forward)")));
+        assertFalse(
+                GitCommands.isTransientPushFailure(
+                        List.of(" ! [remote rejected] main -> main (protected branch hook declined)")));
+    }
+
+    @Test
+    void prepareReachabilityIndex_writesCommitGraph() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, "README.md", "readme");
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory);
+        new ProcessExecutorImpl(NOPLogger.NOP_LOGGER)
+                .execute(processContextBuilder.command(List.of("git", "tag", "1.0.0")).build());
+        assertFalse(GitCommands.hasCommitGraph(tempDirectory));
+
+        gitCommands.prepareReachabilityIndex(false, processContextBuilder);
+
+        assertTrue(GitCommands.hasCommitGraph(tempDirectory));
+        assertEquals(List.of("1.0.0"), gitCommands.listTagsReachableFromRef("HEAD", processContextBuilder));
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    @Test
+    void prepareReachabilityIndex_bitmapsWrittenOnlyWhenMissingOrOutdated() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, "README.md", "readme");
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory);
+        new ProcessExecutorImpl(NOPLogger.NOP_LOGGER)
+                .execute(processContextBuilder.command(List.of("git", "repack", "-d")).build());
+        Path packDir = tempDirectory.resolve(".git").resolve("objects").resolve("pack");
+        assertTrue(GitCommands.areBitmapsOutdated(tempDirectory, 1));
+
+        gitCommands.prepareReachabilityIndex(true, processContextBuilder);
+
+        Path multiPackIndex = packDir.resolve("multi-pack-index");
+        assertTrue(Files.exists(multiPackIndex));
+        assertFalse(GitCommands.areBitmapsOutdated(tempDirectory, 1));
+
+        // pack fetched after the bitmaps were written
+        Path newPack = Files.createFile(packDir.resolve("pack-new.pack"));
+        Files.setLastModifiedTime(
+                newPack,
+                FileTime.fromMillis(Files.getLastModifiedTime(multiPackIndex).toMillis() + 1_000));
+        assertTrue(GitCommands.areBitmapsOutdated(tempDirectory, 1));
+        assertFalse(GitCommands.areBitmapsOutdated(tempDirectory, 2));
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    @Test
+    void chunkPaths_pathsLongerThanLimit_splitIntoChunksWithinLimit() {
+        List<String> paths = List.of("aaaa", "bbbb", "cccc", "dddddddddddd", "e");
+
+        assertEquals(
+                List.of(List.of("aaaa", "bbbb"), List.of("cccc"), List.of("dddddddddddd"), List.of("e")),
+                GitCommands.chunkPaths(paths, 10));
+        assertEquals(List.of(paths), GitCommands.chunkPaths(paths, 1000));
+        assertEquals(List.of(), GitCommands.chunkPaths(List.of(), 10));
+    }
+
+    @Test
+    void applyTuningProfile_smallRepository_appliesStandardProfile() throws IOException {
+        Path tempDirectory = Files.createTempDirectory(TEST_LFS_PREFIX);
+        commitFile(tempDirectory, "README.md", "readme");
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(tempDirectory);
+        assertEquals(1, GitCommands.countIndexEntries(tempDirectory));
+
+        assertEquals(GitTuningProfile.STANDARD, gitCommands.applyTuningProfile(processContextBuilder));
+        String gcAuto = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER)
+                .stdout(processContextBuilder.command(List.of("git", "config", "--local", "gc.auto")));
+        assertEquals("0", gcAuto.strip());
+
+        FileUtils.deleteDirectory(tempDirectory.toFile());
+    }
+
+    private void commitFile(Path repository, String filename, String content) throws IOException {
+        ProcessContext.Builder processContextBuilder = ProcessContext.withWorkdirAndIgnoringOutput(repository);
+        gitCommands.init(false, processContextBuilder);
+        gitCommands.configureCommitter(repository);
+        Files.writeString(repository.resolve(filename), content);
+        gitCommands.add(filename, processContextBuilder);
+        gitCommands.commit("Add " + filename, processContextBuilder);
+    }
+}
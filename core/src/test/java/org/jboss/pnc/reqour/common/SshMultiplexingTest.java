@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutorImpl;
+import org.jboss.pnc.reqour.config.GitConfig;
+import org.jboss.pnc.reqour.model.ProcessContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.helpers.NOPLogger;
+
+class SshMultiplexingTest {
+
+    private Path controlRoot;
+    private SshMultiplexing multiplexing;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        controlRoot = Files.createTempDirectory("test-ssh");
+        GitConfig.SshMultiplexingConfig config = Mockito.mock(GitConfig.SshMultiplexingConfig.class);
+        Mockito.when(config.controlDirectory()).thenReturn(controlRoot);
+        Mockito.when(config.persistSeconds()).thenReturn(60);
+        multiplexing = SshMultiplexing.open(config, "ssh -i id_test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileUtils.deleteDirectory(controlRoot.toFile());
+    }
+
+    @Test
+    void isNetworkCommand_gitCommands_detectsTheOnesTalkingToRemote() {
+        assertThat(SshMultiplexing.isNetworkCommand(List.of("git", "fetch", "origin"))).isTrue();
+        assertThat(SshMultiplexing.isNetworkCommand(List.of("git", "-c", "protocol.version=2", "ls-remote"))).isTrue();
+        assertThat(SshMultiplexing.isNetworkCommand(List.of("git", "--no-pager", "push", "origin"))).isTrue();
+        assertThat(SshMultiplexing.isNetworkCommand(List.of("git", "-c", "push.x=y", "tag", "1.0.0"))).isFalse();
+        assertThat(SshMultiplexing.isNetworkCommand(List.of("git", "rev-parse", "HEAD"))).isFalse();
+        assertThat(SshMultiplexing.isNetworkCommand(List.of("mvn", "fetch"))).isFalse();
+    }
+
+    @Test
+    void apply_networkCommand_addsSshCommandUsingControlDirectory() {
+        ProcessContext processContext = ProcessContext.withWorkdirAndIgnoringOutput(controlRoot)
+                .command(List.of("git", "fetch", "origin"))
+                .extraEnvVariables(Map.of("FOO", "bar"))
+                .build();
+
+        Map<String, String> env = multiplexing.apply(processContext).getExtraEnvVariables();
+
+        assertThat(env).containsEntry("FOO", "bar");
+        assertThat(env.get(SshMultiplexing.GIT_SSH_COMMAND)).startsWith("ssh -i id_test ")
+                .contains("ControlMaster=auto")
+                .contains("ControlPath=" + multiplexing.getControlDirectory())
+                .contains("ControlPersist=60");
+    }
+
+    @Test
+    void apply_localCommand_keepsProcessContext() {
+        ProcessContext processContext = ProcessContext.withWorkdirAndIgnoringOutput(controlRoot)
+                .command(List.of("git", "commit", "-m", "message"))
+                .build();
+
+        assertThat(multiplexing.apply(processContext)).isSameAs(processContext);
+    }
+
+    @Test
+    void resolveBaseCommand_configuredCommands_resolvedInPrecedenceOfGit() {
+        assertThat(SshMultiplexing.resolveBaseCommand(Map.of(), () -> "")).contains("ssh");
+        assertThat(SshMultiplexing.resolveBaseCommand(Map.of(), () -> "ssh -i config\n")).contains("ssh -i config");
+        assertThat(
+                SshMultiplexing.resolveBaseCommand(
+                        Map.of(SshMultiplexing.GIT_SSH_COMMAND, "ssh -i env", SshMultiplexing.GIT_SSH, "plink"),
+                        () -> "ssh -i config"))
+                .contains("ssh -i env");
+        assertThat(SshMultiplexing.resolveBaseCommand(Map.of(SshMultiplexing.GIT_SSH, "plink"), () -> "ssh -i config"))
+                .contains("ssh -i config");
+        assertThat(SshMultiplexing.resolveBaseCommand(Map.of(SshMultiplexing.GIT_SSH, "plink"), () -> "")).isEmpty();
+    }
+
+    @Test
+    void close_deletesControlDirectory() {
+        multiplexing.close(new ProcessExecutorImpl(NOPLogger.NOP_LOGGER));
+
+        assertThat(multiplexing.getControlDirectory()).doesNotExist();
+    }
+}
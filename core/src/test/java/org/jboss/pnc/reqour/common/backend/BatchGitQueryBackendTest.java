@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutorImpl;
+import org.jboss.pnc.reqour.model.ProcessContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * Batch backend has to answer the lookups the same way as the git CLI does, by a single {@code git} process.
+ */
+class BatchGitQueryBackendTest {
+
+    private final ProcessExecutorImpl processExecutor = Mockito.spy(new ProcessExecutorImpl(NOPLogger.NOP_LOGGER));
+    private final CliGitQueryBackend cliBackend = new CliGitQueryBackend(processExecutor);
+    private final BatchGitQueryBackend batchBackend = new BatchGitQueryBackend(processExecutor, cliBackend);
+
+    private TestRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = TestRepository.create(processExecutor, "test-batch-backend");
+        batchBackend.enableSessions(repository.getPath());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        batchBackend.disableSessions(repository.getPath());
+        repository.close();
+    }
+
+    @Test
+    void lookups_sameAnswersAsCli() {
+        assertThat(batchBackend.revParse("HEAD", pcb())).isEqualTo(cliBackend.revParse("HEAD", pcb()));
+        assertThat(batchBackend.revParse("1.0.0", pcb())).isEqualTo(cliBackend.revParse("1.0.0", pcb()));
+        assertThat(batchBackend.getCommitByTag("1.0.0", pcb())).isEqualTo(cliBackend.getCommitByTag("1.0.0", pcb()));
+
+        for (String ref : List.of("main", "feature/foo", "refs/heads/main", "1.0.0", "lightweight", "non-existing")) {
+            assertThat(batchBackend.doesBranchExistLocally(ref, pcb())).as("branch %s", ref)
+                    .isEqualTo(cliBackend.doesBranchExistLocally(ref, pcb()));
+            assertThat(batchBackend.doesTagExistLocally(ref, pcb())).as("tag %s", ref)
+                    .isEqualTo(cliBackend.doesTagExistLocally(ref, pcb()));
+        }
+
+        String head = cliBackend.revParse("HEAD", pcb());
+        String tree = cliBackend.revParse("HEAD^{tree}", pcb());
+        for (String ref : List.of(head, head.substring(0, 10), tree, "1.0.0", "0000000000", "non-existing")) {
+            assertThat(batchBackend.doesShaExist(ref, pcb())).as("sha %s", ref)
+                    .isEqualTo(cliBackend.doesShaExist(ref, pcb()));
+        }
+    }
+
+    @Test
+    void lookups_sessionEnabled_useSingleProcess() {
+        Mockito.clearInvocations(processExecutor);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(batchBackend.doesTagExistLocally("1.0.0", pcb())).isTrue();
+            assertThat(batchBackend.doesShaExist("HEAD", pcb())).isTrue();
+        }
+
+        Mockito.verify(processExecutor, Mockito.times(1)).start(Mockito.any());
+        Mockito.verify(processExecutor, Mockito.never()).execute(Mockito.any());
+    }
+
+    @Test
+    void lookups_refCreatedAfterSessionStarted_isSeen() {
+        assertThat(batchBackend.doesTagExistLocally("2.0.0", pcb())).isFalse();
+
+        repository.git("tag", "2.0.0");
+
+        assertThat(batchBackend.doesTagExistLocally("2.0.0", pcb())).isTrue();
+    }
+
+    @Test
+    void revParse_nonExistingRef_throwsGitException() {
+        assertThatThrownBy(() -> batchBackend.revParse("non-existing", pcb())).isInstanceOf(GitException.class);
+        assertThat(batchBackend.revParse("HEAD", pcb())).isEqualTo(cliBackend.revParse("HEAD", pcb()));
+    }
+
+    @Test
+    void lookups_sessionNotEnabled_fallBackToCli() {
+        batchBackend.disableSessions(repository.getPath());
+
+        assertThat(batchBackend.doesTagExistLocally("1.0.0", pcb())).isTrue();
+
+        Mockito.verify(processExecutor, Mockito.never()).start(Mockito.any());
+    }
+
+    @Test
+    void lookups_notRepository_fallBackToCli() throws IOException {
+        Path notRepository = Files.createTempDirectory("test-batch-backend-no-repo");
+        batchBackend.enableSessions(notRepository);
+        try {
+            assertThat(batchBackend.doesShaExist("HEAD", ProcessContext.withWorkdirAndIgnoringOutput(notRepository)))
+                    .isFalse();
+            assertThatThrownBy(
+                    () -> batchBackend.revParse("HEAD", ProcessContext.withWorkdirAndIgnoringOutput(notRepository)))
+                    .isInstanceOf(GitException.class);
+        } finally {
+            batchBackend.disableSessions(notRepository);
+            Files.delete(notRepository);
+        }
+    }
+
+    private ProcessContext.Builder pcb() {
+        return repository.pcb();
+    }
+}
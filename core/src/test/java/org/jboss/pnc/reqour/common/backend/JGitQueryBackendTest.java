@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutorImpl;
+import org.jboss.pnc.reqour.model.ProcessContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * JGit backend has to answer the same way as the git CLI does.
+ */
+class JGitQueryBackendTest {
+
+    private final ProcessExecutorImpl processExecutor = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER);
+    private final CliGitQueryBackend cliBackend = new CliGitQueryBackend(processExecutor);
+    private final JGitQueryBackend jgitBackend = new JGitQueryBackend(cliBackend);
+
+    private TestRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = TestRepository.create(processExecutor, "test-jgit-backend");
+        repository.writeAndAdd("new-file", "content");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    void queries_sameAnswersAsCli() {
+        assertThat(jgitBackend.revParse("HEAD", pcb())).isEqualTo(cliBackend.revParse("HEAD", pcb()));
+        assertThat(jgitBackend.revParse("1.0.0", pcb())).isEqualTo(cliBackend.revParse("1.0.0", pcb()));
+        assertThat(jgitBackend.getCommitByTag("1.0.0", pcb())).isEqualTo(cliBackend.getCommitByTag("1.0.0", pcb()))
+                .isEqualTo(cliBackend.revParse("HEAD", pcb()));
+        assertThat(jgitBackend.listTags(pcb())).isEqualTo(cliBackend.listTags(pcb()));
+        assertThat(jgitBackend.listBranches(pcb())).isEqualTo(cliBackend.listBranches(pcb()));
+        assertThat(jgitBackend.writeTree(pcb())).isEqualTo(cliBackend.writeTree(pcb()));
+    }
+
+    @Test
+    void existenceChecks_sameAnswersAsCli() {
+        for (String ref : List.of("main", "foo", "feature/foo", "refs/heads/main", "1.0.0", "non-existing")) {
+            assertThat(jgitBackend.doesBranchExistLocally(ref, pcb())).as("branch %s", ref)
+                    .isEqualTo(cliBackend.doesBranchExistLocally(ref, pcb()));
+            assertThat(jgitBackend.doesTagExistLocally(ref, pcb())).as("tag %s", ref)
+                    .isEqualTo(cliBackend.doesTagExistLocally(ref, pcb()));
+        }
+
+        String head = cliBackend.revParse("HEAD", pcb());
+        String tree = cliBackend.revParse("HEAD^{tree}", pcb());
+        for (String ref : List.of(head, head.substring(0, 10), tree, "1.0.0", "0000000000", "non-existing")) {
+            assertThat(jgitBackend.doesShaExist(ref, pcb())).as("sha %s", ref)
+                    .isEqualTo(cliBackend.doesShaExist(ref, pcb()));
+        }
+    }
+
+    @Test
+    void revParse_nonExistingRef_throwsGitException() {
+        assertThatThrownBy(() -> jgitBackend.revParse("non-existing", pcb())).isInstanceOf(GitException.class);
+        assertThatThrownBy(() -> cliBackend.revParse("non-existing", pcb())).isInstanceOf(GitException.class);
+    }
+
+    @Test
+    void revParse_notRepository_fallsBackToCli() throws IOException {
+        Path notRepository = Files.createTempDirectory("test-jgit-backend-no-repo");
+        try {
+            assertThatThrownBy(
+                    () -> jgitBackend.revParse("HEAD", ProcessContext.withWorkdirAndIgnoringOutput(notRepository)))
+                    .isInstanceOf(GitException.class);
+        } finally {
+            Files.delete(notRepository);
+        }
+    }
+
+    private ProcessContext.Builder pcb() {
+        return repository.pcb();
+    }
+}
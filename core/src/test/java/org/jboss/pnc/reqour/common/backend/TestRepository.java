@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutor;
+import org.jboss.pnc.reqour.model.ProcessContext;
+
+/**
+ * Temporary repository the query backends are tested against. It has {@code main} branch with a single commit, branch
+ * {@code feature/foo}, annotated tag {@code 1.0.0} and lightweight tag {@code lightweight}.
+ */
+final class TestRepository implements AutoCloseable {
+
+    private final ProcessExecutor processExecutor;
+    private final Path path;
+
+    private TestRepository(ProcessExecutor processExecutor, Path path) {
+        this.processExecutor = processExecutor;
+        this.path = path;
+    }
+
+    static TestRepository create(ProcessExecutor processExecutor, String prefix) throws IOException {
+        TestRepository repository = new TestRepository(processExecutor, Files.createTempDirectory(prefix));
+        repository.git("init", "--initial-branch", "main");
+        repository.git("config", "user.name", "Reqour Test");
+        repository.git("config", "user.email", "reqour@example.com");
+        repository.writeAndAdd("README.md", "readme");
+        repository.git("commit", "-m", "Initial commit");
+        repository.git("tag", "-a", "-m", "Annotated", "1.0.0");
+        repository.git("tag", "lightweight");
+        repository.git("branch", "feature/foo");
+        return repository;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    ProcessContext.Builder pcb() {
+        return ProcessContext.withWorkdirAndIgnoringOutput(path);
+    }
+
+    void writeAndAdd(String file, String content) throws IOException {
+        Files.writeString(path.resolve(file), content);
+        git("add", file);
+    }
+
+    void git(String... args) {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        int exitCode = processExecutor.execute(pcb().command(command).build());
+        assertThat(exitCode).as("exit code of %s", command).isZero();
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileUtils.deleteDirectory(path.toFile());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.pnc.reqour.config.GitConfig;
+import org.jboss.pnc.reqour.config.ReqourCoreConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LfsObjectCacheTest {
+
+    private static final String CACHED_OID = "a".repeat(64);
+    private static final String DOWNLOADED_OID = "b".repeat(64);
+    private static final String STALE_OID = "c".repeat(64);
+
+    private Path storage;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = Files.createTempDirectory("test-lfs-storage");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileUtils.deleteDirectory(storage.toFile());
+    }
+
+    @Test
+    void fetch_someObjectsAlreadyStored_accountsBytesFromCacheAndNetwork() throws IOException {
+        LfsObjectCache cache = createCache(Long.MAX_VALUE);
+        writeObject(CACHED_OID, 10);
+
+        cache.fetch(List.of(CACHED_OID, DOWNLOADED_OID), () -> writeObject(DOWNLOADED_OID, 5));
+
+        assertThat(meterRegistry.get("reqour.git.lfs.bytes").tag("source", "cache").counter().count()).isEqualTo(10);
+        assertThat(meterRegistry.get("reqour.git.lfs.bytes").tag("source", "network").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void fetch_storageExceedsLimit_evictsLeastRecentlyUsedObjects() throws IOException {
+        LfsObjectCache cache = createCache(20);
+        writeObject(STALE_OID, 10);
+        Files.setLastModifiedTime(
+                LfsObjectCache.objectPath(storage, STALE_OID),
+                FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        writeObject(CACHED_OID, 10);
+
+        try (LfsObjectCache.Lease lease = cache
+                .fetch(List.of(CACHED_OID, DOWNLOADED_OID), () -> writeObject(DOWNLOADED_OID, 5))) {
+            // the eviction runs in the background as well, run it synchronously not to wait for it
+            cache.evictIfNeeded(storage);
+
+            assertThat(LfsObjectCache.objectPath(storage, STALE_OID)).doesNotExist();
+            assertThat(LfsObjectCache.objectPath(storage, CACHED_OID)).exists();
+            assertThat(LfsObjectCache.objectPath(storage, DOWNLOADED_OID)).exists();
+        }
+    }
+
+    @Test
+    void evictIfNeeded_leasedObjects_areNotEvictedUntilReleased() throws IOException {
+        LfsObjectCache cache = createCache(5);
+        writeObject(CACHED_OID, 10);
+        Files.setLastModifiedTime(
+                LfsObjectCache.objectPath(storage, CACHED_OID),
+                FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        LfsObjectCache.Lease first = cache.fetch(List.of(CACHED_OID), () -> {
+        });
+        LfsObjectCache.Lease second = cache.fetch(List.of(CACHED_OID), () -> {
+        });
+        assertThat(cache.countLeases(CACHED_OID)).isEqualTo(2);
+
+        first.close();
+        first.close();
+        cache.evictIfNeeded(storage);
+        assertThat(LfsObjectCache.objectPath(storage, CACHED_OID)).exists();
+
+        second.close();
+        assertThat(cache.countLeases(CACHED_OID)).isZero();
+        cache.evictIfNeeded(storage);
+        assertThat(LfsObjectCache.objectPath(storage, CACHED_OID)).doesNotExist();
+    }
+
+    private LfsObjectCache createCache(long maxStorageSize) {
+        GitConfig.LfsConfig lfsConfig = Mockito.mock(GitConfig.LfsConfig.class);
+        Mockito.when(lfsConfig.storage()).thenReturn(Optional.of(storage));
+        Mockito.when(lfsConfig.maxStorageSize()).thenReturn(maxStorageSize);
+        ReqourCoreConfig config = Mockito.mock(ReqourCoreConfig.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(config.git().lfs()).thenReturn(lfsConfig);
+        return new LfsObjectCache(config, meterRegistry);
+    }
+
+    private void writeObject(String oid, int size) {
+        Path object = LfsObjectCache.objectPath(storage, oid);
+        try {
+            Files.createDirectories(object.getParent());
+            Files.write(object, new byte[size]);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
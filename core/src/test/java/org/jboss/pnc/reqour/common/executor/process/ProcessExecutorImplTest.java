@@ -7,10 +7,15 @@ package org.jboss.pnc.reqour.common.executor.process;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.jboss.pnc.reqour.model.ProcessContext;
 import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.slf4j.helpers.NOPLogger;
 
 public class ProcessExecutorImplTest {
 
@@ -30,4 +35,96 @@ public class ProcessExecutorImplTest {
                 .isEqualTo("cd \"/fo o/bar\" && FOO=\"bar baz\" git \"clo ne\"");
     }
 
+    @Test
+    void execute_processWritesToBothStreams_pumpsLinesIntoConsumers() {
+        ProcessExecutorImpl processExecutor = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER);
+        List<String> stdout = new CopyOnWriteArrayList<>();
+        List<String> stderr = new CopyOnWriteArrayList<>();
+
+        int exitCode = processExecutor.execute(
+                ProcessContext.withWorkdirAndConsumers(Path.of("."), stdout::add, stderr::add)
+                        .command(List.of("sh", "-c", "echo out-1; echo err-1 >&2; printf 'out-2'; exit 3"))
+                        .build());
+
+        assertThat(exitCode).isEqualTo(3);
+        assertThat(stdout).containsExactly("out-1", "out-2");
+        assertThat(stderr).containsExactly("err-1");
+    }
+
+    @Test
+    void execute_withMdcAndExtraEnvVariables_propagatesThemIntoPumps() {
+        ProcessExecutorImpl processExecutor = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER);
+        List<String> stdout = new CopyOnWriteArrayList<>();
+        MDC.put("processContext", "test-context");
+
+        try {
+            processExecutor.execute(
+                    ProcessContext
+                            .withWorkdirAndConsumers(
+                                    Path.of("."),
+                                    line -> stdout.add(line + " " + MDC.get("processContext")),
+                                    line -> {
+                                    })
+                            .extraEnvVariables(Map.of("REQOUR_TEST_VARIABLE", "foo"))
+                            .command(List.of("sh", "-c", "echo $REQOUR_TEST_VARIABLE"))
+                            .build());
+        } finally {
+            MDC.clear();
+        }
+
+        assertThat(stdout).containsExactly("foo test-context");
+    }
+
+    @Test
+    void execute_tooLongLine_truncatesLine() {
+        ProcessExecutorImpl processExecutor = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER);
+        List<String> stdout = new CopyOnWriteArrayList<>();
+
+        processExecutor.execute(
+                ProcessContext.withWorkdirAndConsumers(Path.of("."), stdout::add, line -> {
+                })
+                        .command(List.of("sh", "-c", "head -c 10000 /dev/zero | tr '\\0' 'a'; echo; echo next"))
+                        .build());
+
+        assertThat(stdout).hasSize(2);
+        assertThat(stdout.getFirst()).hasSize(8192);
+        assertThat(stdout.getLast()).isEqualTo("next");
+    }
+
+    @Test
+    void visitStdout_visitorReadsAll_returnsExitCode() {
+        ProcessExecutorImpl processExecutor = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER);
+        List<String> visited = new ArrayList<>();
+
+        int exitCode = processExecutor.visitStdout(
+                ProcessContext.withWorkdirAndIgnoringOutput(Path.of("."))
+                        .command(List.of("sh", "-c", "echo line-1; echo line-2; exit 2"))
+                        .build(),
+                line -> {
+                    visited.add(line);
+                    return true;
+                });
+
+        assertThat(exitCode).isEqualTo(2);
+        assertThat(visited).containsExactly("line-1", "line-2");
+    }
+
+    @Test
+    void visitStdout_visitorStops_terminatesProcess() {
+        ProcessExecutorImpl processExecutor = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER);
+        List<String> visited = new ArrayList<>();
+
+        // the process would never end on its own
+        int exitCode = processExecutor.visitStdout(
+                ProcessContext.withWorkdirAndIgnoringOutput(Path.of("."))
+                        .command(List.of("sh", "-c", "i=0; while true; do i=$((i+1)); echo line-$i; done"))
+                        .build(),
+                line -> {
+                    visited.add(line);
+                    return !line.equals("line-3");
+                });
+
+        assertThat(exitCode).isEqualTo(ProcessExecutor.STOPPED_BY_VISITOR);
+        assertThat(visited).containsExactly("line-1", "line-2", "line-3");
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.executor.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
+import org.jboss.pnc.reqour.common.exceptions.TaskRejectedException;
+import org.jboss.pnc.reqour.config.ReqourCoreConfig;
+import org.jboss.pnc.reqour.config.TaskExecutorConfig;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SchedulingTaskExecutorTest {
+
+    private ExecutorService threads;
+    private MeterRegistry meterRegistry;
+    private SchedulingTaskExecutor taskExecutor;
+    private List<String> capturedContexts;
+
+    @BeforeEach
+    void setUp() {
+        threads = Executors.newCachedThreadPool();
+        meterRegistry = new SimpleMeterRegistry();
+
+        ManagedExecutor executor = Mockito.mock(ManagedExecutor.class);
+        Mockito.doAnswer(invocation -> {
+            threads.execute(invocation.getArgument(0));
+            return null;
+        }).when(executor).execute(Mockito.any(Runnable.class));
+
+        TaskExecutorConfig.LaneConfig laneConfig = Mockito.mock(TaskExecutorConfig.LaneConfig.class);
+        Mockito.when(laneConfig.concurrency()).thenReturn(1);
+        Mockito.when(laneConfig.queueCapacity()).thenReturn(2);
+        ReqourCoreConfig config = Mockito.mock(ReqourCoreConfig.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(config.taskExecutor().cloneLane()).thenReturn(laneConfig);
+        Mockito.when(config.taskExecutor().scmCreationLane()).thenReturn(laneConfig);
+
+        // the context is captured on the thread which calls contextualRunnable
+        capturedContexts = new CopyOnWriteArrayList<>();
+        ThreadContext threadContext = Mockito.mock(ThreadContext.class);
+        Mockito.when(threadContext.contextualRunnable(Mockito.any())).thenAnswer(invocation -> {
+            String submitter = Thread.currentThread().getName();
+            Runnable runnable = invocation.getArgument(0);
+            return (Runnable) () -> {
+                capturedContexts.add(submitter);
+                runnable.run();
+            };
+        });
+
+        taskExecutor = new SchedulingTaskExecutor(executor, threadContext, config, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void executeAsync_laneIsBusy_startsQueuedTasksByPriority() throws InterruptedException {
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(3);
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "blocker", () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+        }, completed, allDone);
+        assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "normal", () -> {
+        }, completed, allDone);
+        submit(TaskType.CLONE, TaskPriority.HIGH, "high", () -> {
+        }, completed, allDone);
+
+        assertThat(taskExecutor.getRunning(TaskType.CLONE)).isEqualTo(1);
+        assertThat(taskExecutor.getQueued(TaskType.CLONE)).isEqualTo(2);
+        assertThat(meterRegistry.get("reqour.tasks.queued").tag("lane", "clone").gauge().value()).isEqualTo(2);
+
+        releaseBlocker.countDown();
+        assertThat(allDone.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed).containsExactly("blocker", "high", "normal");
+        assertThat(meterRegistry.get("reqour.tasks.wait").tag("lane", "clone").timers()).isNotEmpty();
+    }
+
+    @Test
+    void executeAsync_queueIsFull_rejectsTask() throws InterruptedException {
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(3);
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "blocker", () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+        }, completed, allDone);
+        assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "first", () -> {
+        }, completed, allDone);
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "second", () -> {
+        }, completed, allDone);
+
+        assertThatThrownBy(() -> submit(TaskType.CLONE, TaskPriority.HIGH, "rejected", () -> {
+        }, completed, allDone)).isInstanceOf(TaskRejectedException.class);
+        assertThat(meterRegistry.get("reqour.tasks.rejected").tag("lane", "clone").counter().count()).isEqualTo(1);
+
+        releaseBlocker.countDown();
+        assertThat(allDone.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed).doesNotContain("rejected");
+    }
+
+    @Test
+    void executeAsync_cloneLaneIsBusy_doesNotBlockOtherLane() throws InterruptedException {
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        CountDownLatch creationDone = new CountDownLatch(1);
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "blocker", () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+        }, completed, new CountDownLatch(1));
+        assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        submit(TaskType.SCM_REPOSITORY_CREATION, TaskPriority.NORMAL, "creation", () -> {
+        }, completed, creationDone);
+
+        assertThat(creationDone.await(10, TimeUnit.SECONDS)).isTrue();
+        releaseBlocker.countDown();
+    }
+
+    @Test
+    void executeAsync_queuedTask_runsWithContextOfItsSubmitter() throws Exception {
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(2);
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "blocker", () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+        }, completed, allDone);
+        assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread submitter = Thread.ofPlatform()
+                .name("submitter")
+                .start(() -> submit(TaskType.CLONE, TaskPriority.NORMAL, "queued", () -> {
+                }, completed, allDone));
+        submitter.join();
+
+        releaseBlocker.countDown();
+        assertThat(allDone.await(10, TimeUnit.SECONDS)).isTrue();
+        // the queued task is started from the thread of the blocker, but with the context of its own submitter
+        assertThat(capturedContexts).containsExactly(Thread.currentThread().getName(), "submitter");
+    }
+
+    @Test
+    void releaseLaneSlot_waitingTask_letsQueuedTaskStart() throws InterruptedException {
+        CountDownLatch queuedDone = new CountDownLatch(1);
+        CountDownLatch releaseWaiter = new CountDownLatch(1);
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "waiter", () -> {
+            SchedulingTaskExecutor.releaseLaneSlot();
+            SchedulingTaskExecutor.releaseLaneSlot();
+            await(releaseWaiter);
+        }, completed, new CountDownLatch(1));
+        submit(TaskType.CLONE, TaskPriority.NORMAL, "queued", () -> {
+        }, completed, queuedDone);
+
+        assertThat(queuedDone.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed).containsExactly("queued");
+        releaseWaiter.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (taskExecutor.getRunning(TaskType.CLONE) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // the released slot is not released once more when the waiter finishes
+        Thread.sleep(100);
+        assertThat(taskExecutor.getRunning(TaskType.CLONE)).isZero();
+    }
+
+    @Test
+    void executeAsync_taskFails_sendsResultOfErrorHandler() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        taskExecutor.executeAsync(
+                TaskType.CLONE,
+                TaskPriority.NORMAL,
+                null,
+                "failing",
+                request -> {
+                    throw new IllegalStateException("boom");
+                },
+                (request, t) -> request + ": " + t.getCause().getMessage(),
+                (callback, result) -> {
+                    completed.add(result);
+                    done.countDown();
+                });
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed).containsExactly("failing: boom");
+    }
+
+    private void submit(
+            TaskType type,
+            TaskPriority priority,
+            String name,
+            Runnable body,
+            List<String> completed,
+            CountDownLatch done) {
+        taskExecutor.executeAsync(type, priority, null, name, request -> {
+            body.run();
+            return request;
+        }, (request, t) -> request, (callback, result) -> {
+            completed.add(result);
+            done.countDown();
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.common.executor.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.context.ThreadContext;
+import org.jboss.pnc.reqour.common.executor.process.ProcessExecutorImpl;
+import org.jboss.pnc.reqour.config.ReqourCoreConfig;
+import org.jboss.pnc.reqour.config.TaskExecutorConfig;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
+import org.jboss.pnc.reqour.model.ProcessContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.helpers.NOPLogger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Load test of the task executors running on virtual threads. Every task runs a short-living process, the way clones
+ * run git. The test checks the behaviour under load (every task completes, runs with the thread context captured at
+ * its submission, and the lane limit holds).<br/>
+ * Peak number of threads and throughput are reported for {@link TaskExecutorImpl} backed by a platform thread pool
+ * (as the managed executor is) too, so that the executors can be compared. They are not asserted, since they depend on
+ * the machine. JDK waits for every child process on its own 'process reaper' platform thread, no matter which executor
+ * is used, hence the peak is reported both with and without these threads.
+ */
+@Slf4j
+class TaskExecutorLoadIT {
+
+    private static final int TASKS = 300;
+    private static final int LANE_CONCURRENCY = 50;
+    private static final int PLATFORM_POOL_SIZE = 64;
+    private static final List<String> COMMAND = List.of("sh", "-c", "sleep 0.2; echo done");
+
+    private final ProcessExecutorImpl processExecutor = new ProcessExecutorImpl(NOPLogger.NOP_LOGGER);
+
+    @Test
+    void executeAsync_manyBlockingTasksOnPlatformPoolAndVirtualThreads_allCompleteAndAreReported()
+            throws InterruptedException {
+        ExecutorService platformPool = Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+        LoadResult platform;
+        try {
+            platform = runLoad(new TaskExecutorImpl(managedExecutor(platformPool)));
+        } finally {
+            platformPool.shutdownNow();
+        }
+
+        AtomicInteger contextualized = new AtomicInteger();
+        VirtualThreadTaskExecutor virtualThreadTaskExecutor = new VirtualThreadTaskExecutor(
+                threadContext(contextualized));
+        LoadResult virtual;
+        try {
+            virtual = runLoad(virtualThreadTaskExecutor);
+        } finally {
+            virtualThreadTaskExecutor.shutdown();
+        }
+
+        log.info("Platform thread pool ({} threads): {}", PLATFORM_POOL_SIZE, platform);
+        log.info("Virtual threads: {}", virtual);
+        assertThat(platform.completed()).isEqualTo(TASKS);
+        assertThat(virtual.completed()).isEqualTo(TASKS);
+        assertThat(contextualized).hasValue(TASKS);
+    }
+
+    @Test
+    void executeAsync_manyBlockingTasksOnVirtualThreads_allCompleteWithinLaneLimit() throws InterruptedException {
+        AtomicInteger contextualized = new AtomicInteger();
+        SchedulingTaskExecutor taskExecutor = new SchedulingTaskExecutor(
+                Mockito.mock(ManagedExecutor.class),
+                threadContext(contextualized),
+                config(),
+                new SimpleMeterRegistry());
+        LoadResult result;
+        try {
+            result = runLoad(taskExecutor);
+        } finally {
+            taskExecutor.shutdown();
+        }
+
+        log.info("Scheduling executor on virtual threads (lane concurrency {}): {}", LANE_CONCURRENCY, result);
+        assertThat(result.completed()).isEqualTo(TASKS);
+        assertThat(contextualized).hasValue(TASKS);
+        assertThat(result.peakRunning()).isLessThanOrEqualTo(LANE_CONCURRENCY);
+    }
+
+    @Test
+    void executeAsync_manyBlockingTasksWithoutScheduling_allComplete() throws InterruptedException {
+        AtomicInteger contextualized = new AtomicInteger();
+        VirtualThreadTaskExecutor taskExecutor = new VirtualThreadTaskExecutor(threadContext(contextualized));
+        LoadResult result;
+        try {
+            result = runLoad(taskExecutor);
+        } finally {
+            taskExecutor.shutdown();
+        }
+
+        log.info("Virtual thread executor: {}", result);
+        assertThat(result.completed()).isEqualTo(TASKS);
+        assertThat(contextualized).hasValue(TASKS);
+    }
+
+    private LoadResult runLoad(TaskExecutor taskExecutor) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        CountDownLatch done = new CountDownLatch(TASKS);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peakRunning = new AtomicInteger();
+
+        AtomicInteger peakWithoutReapers = new AtomicInteger();
+        Thread sampler = Thread.ofVirtual().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                int current = (int) Thread.getAllStackTraces()
+                        .keySet()
+                        .stream()
+                        .filter(thread -> !thread.getName().startsWith("process reaper"))
+                        .count();
+                peakWithoutReapers.accumulateAndGet(current, Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < TASKS; i++) {
+            taskExecutor.executeAsync(TaskType.CLONE, TaskPriority.NORMAL, null, COMMAND, command -> {
+                peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return processExecutor.execute(
+                            ProcessContext.withWorkdirAndIgnoringOutput(Path.of(".")).command(command).build());
+                } finally {
+                    running.decrementAndGet();
+                }
+            }, (command, t) -> -1, (callback, exitCode) -> {
+                if (exitCode == 0) {
+                    completed.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        sampler.interrupt();
+        sampler.join();
+
+        return new LoadResult(
+                completed.get(),
+                peakRunning.get(),
+                threads.getPeakThreadCount(),
+                peakWithoutReapers.get(),
+                elapsedMillis,
+                completed.get() * 1000.0 / Math.max(elapsedMillis, 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ManagedExecutor managedExecutor(ExecutorService pool) {
+        ManagedExecutor executor = Mockito.mock(ManagedExecutor.class);
+        Mockito.when(executor.supplyAsync(Mockito.any()))
+                .thenAnswer(
+                        invocation -> CompletableFuture
+                                .supplyAsync(invocation.getArgument(0, Supplier.class), pool));
+        return executor;
+    }
+
+    private static ReqourCoreConfig config() {
+        TaskExecutorConfig.LaneConfig laneConfig = Mockito.mock(TaskExecutorConfig.LaneConfig.class);
+        Mockito.when(laneConfig.concurrency()).thenReturn(LANE_CONCURRENCY);
+        Mockito.when(laneConfig.queueCapacity()).thenReturn(TASKS);
+        ReqourCoreConfig config = Mockito.mock(ReqourCoreConfig.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(config.taskExecutor().virtualThreads()).thenReturn(true);
+        Mockito.when(config.taskExecutor().cloneLane()).thenReturn(laneConfig);
+        Mockito.when(config.taskExecutor().scmCreationLane()).thenReturn(laneConfig);
+        return config;
+    }
+
+    private static ThreadContext threadContext(AtomicInteger contextualized) {
+        ThreadContext threadContext = Mockito.mock(ThreadContext.class);
+        Mockito.when(threadContext.contextualRunnable(Mockito.any())).thenAnswer(invocation -> {
+            Runnable runnable = invocation.getArgument(0);
+            return (Runnable) () -> {
+                contextualized.incrementAndGet();
+                runnable.run();
+            };
+        });
+        return threadContext;
+    }
+
+    private record LoadResult(
+            int completed,
+            int peakRunning,
+            int peakThreads,
+            int peakThreadsWithoutReapers,
+            long elapsedMillis,
+            double tasksPerSecond) {
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RefSyncPlanTest {
+
+    private static final String SHA_1 = "e3e66469a4b5c1a4b2e400cfd55e384db5a6d833";
+    private static final String SHA_2 = "1361ec87f34e7da08e288eb75c22f41d7a3d9095";
+
+    @Test
+    void compute_differentRefs_splitsIntoCreatedUpdatedAndUnchanged() {
+        RemoteRefIndex source = RemoteRefIndex.parse(
+                List.of(
+                        SHA_2 + "\trefs/heads/main",
+                        SHA_1 + "\trefs/heads/new-branch",
+                        SHA_1 + "\trefs/tags/1.0.0",
+                        SHA_2 + "\trefs/tags/1.0.1"));
+        RemoteRefIndex target = RemoteRefIndex.parse(
+                List.of(
+                        SHA_1 + "\trefs/heads/main",
+                        SHA_1 + "\trefs/heads/downstream-only",
+                        SHA_1 + "\trefs/tags/1.0.0"));
+
+        RefSyncPlan plan = RefSyncPlan.compute(source, target);
+
+        assertThat(plan.created()).containsExactly("refs/heads/new-branch", "refs/tags/1.0.1");
+        assertThat(plan.updated()).containsExactly("refs/heads/main");
+        assertThat(plan.unchanged()).containsExactly("refs/tags/1.0.0");
+        assertThat(plan.changed())
+                .containsExactlyInAnyOrder("refs/heads/new-branch", "refs/tags/1.0.1", "refs/heads/main");
+        assertThat(plan.isUpToDate()).isFalse();
+    }
+
+    @Test
+    void compute_sameRefs_isUpToDate() {
+        RemoteRefIndex refs = RemoteRefIndex.parse(List.of(SHA_1 + "\trefs/heads/main", SHA_2 + "\trefs/tags/1.0.0"));
+
+        RefSyncPlan plan = RefSyncPlan.compute(refs, refs);
+
+        assertThat(plan.isUpToDate()).isTrue();
+        assertThat(plan.unchanged()).hasSize(2);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class RemoteRefIndexTest {
+
+    private static final String COMMIT_SHA = "e3e66469a4b5c1a4b2e400cfd55e384db5a6d833";
+    private static final String TAG_SHA = "1361ec87f34e7da08e288eb75c22f41d7a3d9095";
+
+    @Test
+    void parse_lsRemoteOutput_classifiesBranchesAndTags() {
+        RemoteRefIndex index = RemoteRefIndex.parse(
+                List.of(
+                        COMMIT_SHA + "\trefs/heads/main",
+                        COMMIT_SHA + "\trefs/heads/feature/x",
+                        TAG_SHA + "\trefs/tags/1.0.0",
+                        COMMIT_SHA + "\trefs/tags/1.0.0^{}"));
+
+        assertThat(index.isEmpty()).isFalse();
+        assertThat(index.hasBranch("main")).isTrue();
+        assertThat(index.hasBranch("feature/x")).isTrue();
+        assertThat(index.hasBranch("1.0.0")).isFalse();
+        assertThat(index.hasTag("1.0.0")).isTrue();
+        assertThat(index.hasTag("main")).isFalse();
+        assertThat(index.getBranches()).isEqualTo(Map.of("main", COMMIT_SHA, "feature/x", COMMIT_SHA));
+        assertThat(index.getTags()).isEqualTo(Map.of("1.0.0", TAG_SHA));
+        assertThat(index.getSha("refs/tags/1.0.0")).contains(TAG_SHA);
+    }
+
+    @Test
+    void parse_noRefsAdvertised_isEmpty() {
+        RemoteRefIndex index = RemoteRefIndex.parse(List.of());
+
+        assertThat(index.isEmpty()).isTrue();
+        assertThat(index.hasBranch("main")).isFalse();
+        assertThat(index.getSha("refs/heads/main")).isEmpty();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 Red Hat, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.pnc.reqour.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.pnc.api.reqour.dto.RepositoryCloneRequest;
+import org.jboss.pnc.reqour.common.exceptions.GitException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InFlightCloneRegistryTest {
+
+    private MeterRegistry meterRegistry;
+    private InFlightCloneRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new InFlightCloneRegistry(meterRegistry, NOPLogger.NOP_LOGGER);
+    }
+
+    @Test
+    void runOrAttach_identicalRequestWhileRunning_attachesToRunningSync() throws Exception {
+        AtomicInteger syncs = new AtomicInteger();
+        CountDownLatch syncStarted = new CountDownLatch(1);
+        CountDownLatch finishSync = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture
+                .runAsync(() -> registry.runOrAttach(request("task-1"), () -> {
+                    syncs.incrementAndGet();
+                    syncStarted.countDown();
+                    await(finishSync);
+                }));
+        assertThat(syncStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> second = CompletableFuture
+                .runAsync(() -> registry.runOrAttach(request("task-2"), syncs::incrementAndGet));
+        while (attachedCount() < 1) {
+            Thread.sleep(10);
+        }
+        finishSync.countDown();
+
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+        assertThat(syncs).hasValue(1);
+        assertThat(attachedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void runOrAttach_runningSyncFails_attachedRequestFailsWithSameException() throws Exception {
+        CountDownLatch syncStarted = new CountDownLatch(1);
+        CountDownLatch finishSync = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture
+                .runAsync(() -> registry.runOrAttach(request("task-1"), () -> {
+                    syncStarted.countDown();
+                    await(finishSync);
+                    throw new GitException("Sync failed");
+                }));
+        assertThat(syncStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> second = CompletableFuture
+                .runAsync(() -> registry.runOrAttach(request("task-2"), () -> {
+                }));
+        while (attachedCount() < 1) {
+            Thread.sleep(10);
+        }
+        finishSync.countDown();
+
+        assertThatThrownBy(() -> second.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(GitException.class);
+        assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(GitException.class);
+    }
+
+    @Test
+    void runOrAttach_sequentialRequests_runSeparately() {
+        AtomicInteger syncs = new AtomicInteger();
+
+        registry.runOrAttach(request("task-1"), syncs::incrementAndGet);
+        registry.runOrAttach(request("task-2"), syncs::incrementAndGet);
+
+        assertThat(syncs).hasValue(2);
+        assertThat(attachedCount()).isZero();
+    }
+
+    private double attachedCount() {
+        return meterRegistry.get("reqour.clone.requests").tag("coalesced", "true").counter().count();
+    }
+
+    private static RepositoryCloneRequest request(String taskId) {
+        return RepositoryCloneRequest.builder()
+                .originRepoUrl("https://github.com/project-ncl/reqour.git")
+                .targetRepoUrl("git@gitlab.com:test-workspace/project-ncl/reqour.git")
+                .ref("main")
+                .taskId(taskId)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Objects;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
@@ -22,6 +23,8 @@ import org.jboss.pnc.reqour.common.callbacksender.CallbackSender;
 import org.jboss.pnc.reqour.common.exceptions.GitException;
 import org.jboss.pnc.reqour.common.executor.task.TaskExecutor;
 import org.jboss.pnc.reqour.common.utils.ValidationUtils;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
 import org.jboss.pnc.reqour.runtime.UserLogger;
 import org.jboss.pnc.reqour.service.api.CloneService;
 import org.slf4j.Logger;
@@ -41,12 +44,12 @@ public class CloneEndpointImpl implements CloneEndpoint {
     @Inject
     public CloneEndpointImpl(
             CloneService service,
-            TaskExecutor taskExecutor,
+            Instance<TaskExecutor> taskExecutor,
             CallbackSender callbackSender,
             ValidationUtils validationUtils,
             @UserLogger Logger logger) {
         this.service = service;
-        this.taskExecutor = taskExecutor;
+        this.taskExecutor = taskExecutor.get();
         this.callbackSender = callbackSender;
         this.validationUtils = validationUtils;
         this.userLogger = logger;
@@ -59,7 +62,11 @@ public class CloneEndpointImpl implements CloneEndpoint {
 
         validationUtils.validateInternalUrlMatchesActiveGitProvider(cloneRequest.getTargetRepoUrl());
 
+        // syncing a single ref is quick compared to the sync of the whole repository
+        TaskPriority priority = cloneRequest.getRef() == null ? TaskPriority.NORMAL : TaskPriority.HIGH;
         taskExecutor.executeAsync(
+                TaskType.CLONE,
+                priority,
                 cloneRequest.getCallback(),
                 cloneRequest,
                 service::clone,
@@ -25,9 +25,10 @@ import org.jboss.pnc.reqour.common.exceptions.GitHubApiException;
 import org.jboss.pnc.reqour.common.exceptions.GitLabApiRuntimeException;
 import org.jboss.pnc.reqour.common.exceptions.InvalidProjectPathException;
 import org.jboss.pnc.reqour.common.executor.task.TaskExecutor;
-import org.jboss.pnc.reqour.common.executor.task.TaskExecutorImpl;
 import org.jboss.pnc.reqour.config.ConfigUtils;
 import org.jboss.pnc.reqour.config.GitProviderConfig;
+import org.jboss.pnc.reqour.enums.TaskPriority;
+import org.jboss.pnc.reqour.enums.TaskType;
 import org.jboss.pnc.reqour.runtime.UserLogger;
 import org.jboss.pnc.reqour.service.api.InternalSCMRepositoryCreationService;
 import org.slf4j.Logger;
@@ -48,12 +49,12 @@ public class InternalSCMRepositoryCreationEndpointImpl implements InternalSCMRep
     public InternalSCMRepositoryCreationEndpointImpl(
             Instance<InternalSCMRepositoryCreationService> service,
             ConfigUtils configUtils,
-            TaskExecutorImpl taskExecutor,
+            Instance<TaskExecutor> taskExecutor,
             CallbackSender callbackSender,
             @UserLogger Logger userLogger) {
         this.service = service.get();
         this.gitProviderConfig = configUtils.getActiveGitProviderConfig();
-        this.taskExecutor = taskExecutor;
+        this.taskExecutor = taskExecutor.get();
         this.callbackSender = callbackSender;
         this.userLogger = userLogger;
     }
@@ -64,6 +65,8 @@ public class InternalSCMRepositoryCreationEndpointImpl implements InternalSCMRep
         userLogger.info("Internal SCM repository creation request: {}", creationRequest);
 
         taskExecutor.executeAsync(
+                TaskType.SCM_REPOSITORY_CREATION,
+                TaskPriority.NORMAL,
                 creationRequest.getCallback(),
                 creationRequest,
                 service::createInternalSCMRepository,